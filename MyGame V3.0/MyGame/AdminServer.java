@@ -0,0 +1,206 @@
+// AdminServer.java - Puerto de administración: reportes y contadores servidos desde instantáneas por época
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+
+// Protocolo de texto por líneas: primero "AUTH <token>", luego un comando por línea.
+// Cada respuesta termina con una línea que contiene solo "."
+//
+// Los reportes salen de un seguidor de StatsProcessor que avanza, como mucho, una vez
+// por época (-Darena.adminEpochMs); dentro de una época la misma consulta se responde
+// con el texto ya renderizado. Las salas nunca esperan por una consulta de aquí
+final class AdminServer implements Runnable {
+    // Sin token (-Darena.adminToken) el puerto no se abre
+    private static final String TOKEN = System.getProperty("arena.adminToken", "");
+    private static final int PORT = Integer.getInteger("arena.adminPort", 5001);
+    // Solo local salvo que se pida otra dirección (-Darena.adminBind)
+    private static final String BIND = System.getProperty("arena.adminBind", "127.0.0.1");
+    private static final long EPOCH_MS = Long.getLong("arena.adminEpochMs", 1000L);
+    private static final int READ_TIMEOUT_MS = 60_000;
+    // Las consultas con nombres arbitrarios no deben hacer crecer el caché sin límite
+    private static final int MAX_RENDERED = 256;
+
+    private static final String HELP = String.join("\n",
+        "REPORT                  - Reporte completo",
+        "TOP [n]                 - Jugadores por daño total",
+        "VICTORIES               - Victorias por jugador",
+        "WEAPON                  - Arma más efectiva",
+        "DURATION                - Duración promedio, extremos y percentiles",
+        "SURRENDERS              - Tasa de rendiciones",
+        "RIVALRIES               - Enfrentamientos repetidos",
+        "DISTINCT                - Jugadores y rivalidades distintos",
+        "ACTIVITY [5M|1H|1D]     - Actividad reciente",
+        "DAILY [n]               - Batallas por día en los últimos n días",
+        "NEMESIS nombre          - Rival que más veces venció al jugador",
+        "H2H nombre1 nombre2     - Cara a cara entre dos jugadores",
+        "COUNTERS                - Contadores del servidor",
+        "QUIT                    - Cerrar la conexión");
+
+    private final StatsProcessor stats;
+    private final long startedAt = System.currentTimeMillis();
+    // Estado de la época actual; solo se toca con el monitor de este objeto
+    private final Map<String, String> rendered = new HashMap<>();
+    private long epoch = 0;
+    private long epochStartedAt = 0;
+    private int epochMatches = 0;
+    private String counters = "";
+
+    private AdminServer(StatsProcessor stats) {
+        this.stats = stats;
+    }
+
+    static void startIfConfigured(StatsProcessor stats) {
+        if (TOKEN.isEmpty()) {
+            GameLog.info("Puerto de administración desactivado (sin -Darena.adminToken)");
+            return;
+        }
+        Thread acceptor = new Thread(new AdminServer(stats), "admin-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @Override
+    public void run() {
+        try (ServerSocket serverSocket = new ServerSocket(PORT, 16, InetAddress.getByName(BIND))) {
+            GameLog.info("Administración escuchando en ", BIND + ":" + PORT);
+            while (true) {
+                Socket socket = serverSocket.accept();
+                Thread session = new Thread(() -> serve(socket), "admin-session");
+                session.setDaemon(true);
+                session.start();
+            }
+        } catch (IOException e) {
+            GameLog.error("Error en el puerto de administración: ", e.getMessage());
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setSoTimeout(READ_TIMEOUT_MS);
+
+            String auth = in.readLine();
+            if (auth == null || !authorized(auth)) {
+                GameLog.warn("Acceso de administración rechazado desde ", socket.getRemoteSocketAddress());
+                reply(out, "ERROR: token inválido");
+                return;
+            }
+            reply(out, "OK");
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.trim();
+                if (command.equalsIgnoreCase("QUIT")) break;
+                if (command.isEmpty()) continue;
+                reply(out, respond(command));
+            }
+        } catch (IOException e) {
+            GameLog.info("Sesión de administración cerrada: ", e.getMessage());
+        }
+    }
+
+    // Comparación en tiempo constante para no filtrar el token por tiempos de respuesta
+    private static boolean authorized(String line) {
+        if (!line.startsWith("AUTH ")) return false;
+        byte[] given = line.substring(5).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(given, TOKEN.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void reply(PrintWriter out, String text) {
+        out.print(text);
+        if (!text.endsWith("\n")) {
+            out.print("\n");
+        }
+        out.print(".\n");
+        out.flush();
+    }
+
+    synchronized String respond(String command) {
+        advanceEpoch();
+        String[] parts = command.split("\\s+");
+        String name = parts[0].toUpperCase();
+        if (name.equals("COUNTERS")) return counters;
+        if (name.equals("HELP")) return HELP;
+
+        String key = name + " " + String.join(" ", Arrays.copyOfRange(parts, 1, parts.length));
+        String cached = rendered.get(key);
+        if (cached != null) return cached;
+
+        String text = render(name, parts);
+        if (rendered.size() >= MAX_RENDERED) {
+            rendered.clear();
+        }
+        rendered.put(key, text);
+        return text;
+    }
+
+    // Una época nueva como mucho cada EPOCH_MS, y solo cuando alguien consulta: sin
+    // consultas el seguidor no hace ningún trabajo. La actividad reciente depende de la
+    // hora, así que el texto renderizado no sobrevive a su época
+    private void advanceEpoch() {
+        long now = System.currentTimeMillis();
+        if (now - epochStartedAt < EPOCH_MS) return;
+        epochStartedAt = now;
+        epoch++;
+        epochMatches = stats.catchUp();
+        rendered.clear();
+        counters = String.join("\n",
+            "Época " + epoch + ": " + epochMatches + " batallas registradas",
+            "Jugadores conectados: " + ClientHandler.getConnectedCount(),
+            "Jugadores en el ranking: " + ClientHandler.getRankedPlayerCount(),
+            "Batallas solo en resúmenes: " + stats.getEvictedCount(),
+            "Mensajes de log descartados: " + GameLog.droppedCount(),
+            "Salida descartada / combinada: " + OutboundQueue.droppedCount() + " / " + OutboundQueue.coalescedCount(),
+            "Clientes lentos desconectados: " + OutboundQueue.disconnectedCount(),
+            "Activo desde hace: " + (now - startedAt) / 1000 + " s");
+    }
+
+    private String render(String name, String[] parts) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, false, StandardCharsets.UTF_8);
+        try {
+            switch (name) {
+                case "REPORT" -> stats.generateFullReport(out);
+                case "TOP" -> stats.showTopPlayersByDamage(out, parts.length > 1 ? Integer.parseInt(parts[1]) : 10);
+                case "VICTORIES" -> stats.showVictoriesCount(out);
+                case "WEAPON" -> stats.showMostEffectiveWeapon(out);
+                case "DURATION" -> {
+                    stats.showAverageDuration(out);
+                    stats.showDurationExtremes(out);
+                    stats.showPercentiles(out);
+                }
+                case "SURRENDERS" -> stats.showSurrenderRate(out);
+                case "RIVALRIES" -> stats.showRivalries(out);
+                case "DISTINCT" -> stats.showDistinctCounts(out);
+                case "ACTIVITY" -> stats.showRecentActivity(out, window(parts.length > 1 ? parts[1] : "1H"));
+                case "DAILY" -> stats.showDailyActivity(out, parts.length > 1 ? Integer.parseInt(parts[1]) : 7);
+                case "NEMESIS" -> stats.showNemesis(out, argument(parts, 1));
+                case "H2H" -> stats.showHeadToHead(out, argument(parts, 1), argument(parts, 2));
+                default -> out.print("ERROR: comando desconocido, usa HELP");
+            }
+        } catch (IllegalArgumentException e) {
+            out.print("ERROR: " + e.getMessage());
+        }
+        out.flush();
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    private static StatsWindows.Window window(String name) {
+        return switch (name.toUpperCase()) {
+            case "5M" -> StatsWindows.Window.LAST_5_MINUTES;
+            case "1H" -> StatsWindows.Window.LAST_HOUR;
+            case "1D" -> StatsWindows.Window.LAST_DAY;
+            default -> throw new IllegalArgumentException("ventana desconocida: " + name);
+        };
+    }
+
+    private static String argument(String[] parts, int index) {
+        if (index >= parts.length) {
+            throw new IllegalArgumentException("falta un nombre de jugador");
+        }
+        return parts[index];
+    }
+}
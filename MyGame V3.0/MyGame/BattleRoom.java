@@ -0,0 +1,141 @@
+// BattleRoom.java - Sala de batalla PVP: un único consumidor procesa los eventos de ambos jugadores
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class BattleRoom {
+    enum EventType { ATTACK, HEAL, SURRENDER, DISCONNECT }
+
+    private record Event(EventType type, ClientHandler from) {}
+
+    private final ClientHandler challenger;
+    private final ClientHandler accepter;
+    private final StatsProcessor statsProcessor;
+    private final long startTime = System.currentTimeMillis();
+
+    // Cola de eventos y contador de trabajo pendiente: quien lo sube desde 0 drena la cola
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    // Estado propio de la sala: solo lo toca el hilo que está drenando
+    private int challengerDamage = 0;
+    private int accepterDamage = 0;
+    private boolean finished = false;
+
+    BattleRoom(ClientHandler challenger, ClientHandler accepter, StatsProcessor statsProcessor) {
+        this.challenger = challenger;
+        this.accepter = accepter;
+        this.statsProcessor = statsProcessor;
+    }
+
+    ClientHandler opponentOf(ClientHandler player) {
+        return player == challenger ? accepter : challenger;
+    }
+
+    // Encola el evento; si nadie está procesando la sala, este hilo la procesa sin bloquearse
+    void submit(EventType type, ClientHandler from) {
+        events.add(new Event(type, from));
+        if (pending.getAndIncrement() != 0) return;
+
+        int missed = 1;
+        do {
+            Event event;
+            while ((event = events.poll()) != null) {
+                process(event);
+            }
+            missed = pending.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void process(Event event) {
+        if (finished) {
+            // La batalla ya terminó: eventos tardíos se ignoran
+            if (event.type() == EventType.ATTACK) {
+                event.from().sendMessage("ERROR: No tienes un oponente válido");
+            }
+            return;
+        }
+
+        ClientHandler from = event.from();
+        switch (event.type()) {
+            case ATTACK -> attack(from, opponentOf(from));
+            case HEAL -> from.applyHeal();
+            case SURRENDER -> {
+                from.sendMessage("TE_HAS_RENDIDO");
+                opponentOf(from).sendMessage("TU_OPONENTE_SE_HA_RENDIDO");
+                finish(opponentOf(from), from, true);
+            }
+            case DISCONNECT -> {
+                opponentOf(from).sendMessage("TU_OPONENTE_SE_DESCONECTO");
+                finish(opponentOf(from), from, true);
+            }
+        }
+    }
+
+    private void attack(ClientHandler attacker, ClientHandler target) {
+        int damage = Optional.ofNullable(attacker.getWeapon())
+            .map(Weapons::getDamage)
+            .orElse(10);
+
+        attacker.combatState().addDamage(damage);
+        if (attacker == challenger) {
+            challengerDamage += damage;
+        } else {
+            accepterDamage += damage;
+        }
+
+        long targetState = target.combatState().takeDamage(damage);
+        target.send(ServerMessage.HP, CombatState.hp(targetState));
+        target.send(ServerMessage.ATTACKED_BY, damage, attacker.getPlayerName());
+        attacker.send(ServerMessage.ATTACKED_OPPONENT, damage);
+        attacker.send(ServerMessage.HP_OPPONENT, CombatState.hp(targetState));
+
+        if (CombatState.died(targetState)) {
+            long attackerState = attacker.combatState().addKill();
+            target.send(ServerMessage.YOU_DIED);
+            target.send(ServerMessage.YOU_LOSE);
+            target.sendMessage("¡Has muerto! Muertes totales: " + CombatState.deaths(targetState));
+            target.sendMessage("Usa 'HEAL' para revivir o 'EXIT' para salir.");
+            attacker.send(ServerMessage.OPPONENT_DIED);
+            attacker.send(ServerMessage.YOU_WIN);
+            attacker.sendMessage("¡Obtuviste un KILL! Kills totales: " + CombatState.kills(attackerState));
+            finish(attacker, target, false);
+        } else {
+            target.sendBattleMenu();
+        }
+    }
+
+    // Cierra la sala una sola vez: registra el resultado y libera a ambos jugadores
+    private void finish(ClientHandler winner, ClientHandler loser, boolean surrender) {
+        finished = true;
+
+        statsProcessor.addMatchResult(new MatchResult(
+            winner.getPlayerName(),
+            loser.getPlayerName(),
+            damageDealtBy(winner),
+            damageDealtBy(loser),
+            System.currentTimeMillis() - startTime,
+            weaponName(winner),
+            weaponName(loser),
+            surrender
+        ));
+
+        List.of(challenger, accepter).forEach(player -> {
+            player.leaveBattleRoom(this);
+            player.updateGlobalStats();
+            player.send(ServerMessage.BATTLE_END);
+            // Si el jugador murió durante la batalla, no mostrar menú principal
+            if (player.isPlayerAlive()) {
+                player.sendMainMenu();
+            }
+        });
+    }
+
+    private int damageDealtBy(ClientHandler player) {
+        return player == challenger ? challengerDamage : accepterDamage;
+    }
+
+    private static String weaponName(ClientHandler player) {
+        return Optional.ofNullable(player.getWeapon()).map(Weapons::getName).orElse("Sin arma");
+    }
+}
@@ -0,0 +1,290 @@
+// BattleSimulator.java - Simulación Monte Carlo de batallas sin jugadores, repartida en todos los núcleos
+import java.util.*;
+import java.util.concurrent.*;
+
+// Uso: java BattleSimulator [batallas por escenario] [semilla] [curarse bajo este HP]
+//
+// Dos tipos de escenario:
+//  - PVP, con las reglas de BattleRoom: 100 HP, el daño del arma sin fallos, curación de 15.
+//    En cada acción actúa uno de los dos al azar, como los comandos que llegan a la sala
+//  - PVE, como simularBatalla de GameMain pero aplicando el daño: por ronda cada jugador
+//    vivo ataca a un enemigo al azar (50% de acierto) o se cura, y cada enemigo vivo con
+//    ataques restantes golpea a un jugador al azar
+// Bajo el umbral de HP se elige curarse la mitad de las veces.
+//
+// Cada tramo de batallas usa su propio SplittableRandom, separado del de la tarea que lo
+// creó; los tramos no dependen del número de hilos, así que la misma semilla da siempre
+// los mismos resultados
+public class BattleSimulator {
+    private static final int MAX_HP = CombatState.MAX_HP;
+    private static final int HEAL_AMOUNT = 15;
+
+    // Decisiones y límites de una batalla simulada
+    record Rules(int healBelow, int healPercent, int hitPercent, int maxTurns) {
+    }
+
+    // Resultados de un escenario; los tramos se combinan con merge()
+    static final class Tally {
+        long wins;
+        long losses;
+        long draws;
+        long damageDealt;
+        // Turnos (acciones en PVP, rondas en PVE) de las batallas con ganador
+        final long[] turns;
+
+        Tally(int maxTurns) {
+            turns = new long[maxTurns + 1];
+        }
+
+        void merge(Tally other) {
+            wins += other.wins;
+            losses += other.losses;
+            draws += other.draws;
+            damageDealt += other.damageDealt;
+            for (int i = 0; i < turns.length; i++) {
+                turns[i] += other.turns[i];
+            }
+        }
+
+        long battles() {
+            return wins + losses + draws;
+        }
+
+        double winRate() {
+            return battles() > 0 ? wins * 100.0 / battles() : 0.0;
+        }
+
+        // Percentil exacto del histograma de turnos
+        int turnsQuantile(double q) {
+            long decided = wins + losses;
+            if (decided == 0) return 0;
+            long rank = (long) Math.ceil(q * decided);
+            long seen = 0;
+            for (int i = 0; i < turns.length; i++) {
+                seen += turns[i];
+                if (seen >= Math.max(1, rank)) return i;
+            }
+            return turns.length - 1;
+        }
+    }
+
+    interface Scenario {
+        Rules rules();
+
+        // Corre varias batallas seguidas; los arreglos de trabajo se reservan una vez por tramo
+        void run(SplittableRandom random, long battles, Tally tally);
+    }
+
+    // Duelo con las reglas del servidor; gana "a" si deja a "b" en 0 HP
+    record Duel(Weapons a, Weapons b, Rules rules) implements Scenario {
+
+        @Override
+        public void run(SplittableRandom random, long battles, Tally tally) {
+            for (long battle = 0; battle < battles; battle++) {
+                int hpA = MAX_HP;
+                int hpB = MAX_HP;
+                int turn = 1;
+                for (; turn <= rules.maxTurns(); turn++) {
+                    if (random.nextBoolean()) {
+                        if (heals(random, rules, hpA)) {
+                            hpA = Math.min(MAX_HP, hpA + HEAL_AMOUNT);
+                        } else if (hits(random, rules)) {
+                            hpB = Math.max(0, hpB - a.getDamage());
+                            tally.damageDealt += a.getDamage();
+                            if (hpB == 0) break;
+                        }
+                    } else {
+                        if (heals(random, rules, hpB)) {
+                            hpB = Math.min(MAX_HP, hpB + HEAL_AMOUNT);
+                        } else if (hits(random, rules)) {
+                            hpA = Math.max(0, hpA - b.getDamage());
+                            if (hpA == 0) break;
+                        }
+                    }
+                }
+                record(tally, turn, hpB == 0, hpA == 0);
+            }
+        }
+    }
+
+    // Equipo de jugadores contra un grupo de enemigos; gana el equipo si no queda enemigo vivo
+    record Raid(List<Weapons> team, List<Enemy> enemies, Rules rules) implements Scenario {
+
+        @Override
+        public void run(SplittableRandom random, long battles, Tally tally) {
+            int[] playerHp = new int[team.size()];
+            int[] enemyHp = new int[enemies.size()];
+            int[] attacksLeft = new int[enemies.size()];
+            for (long battle = 0; battle < battles; battle++) {
+                Arrays.fill(playerHp, MAX_HP);
+                for (int i = 0; i < enemyHp.length; i++) {
+                    enemyHp[i] = enemies.get(i).getHp();
+                    attacksLeft[i] = enemies.get(i).getAttacks();
+                }
+                int playersAlive = playerHp.length;
+                int enemiesAlive = enemyHp.length;
+
+                int round = 1;
+                for (; round <= rules.maxTurns() && playersAlive > 0 && enemiesAlive > 0; round++) {
+                    for (int p = 0; p < playerHp.length && enemiesAlive > 0; p++) {
+                        if (playerHp[p] == 0) continue;
+                        if (heals(random, rules, playerHp[p])) {
+                            playerHp[p] = Math.min(MAX_HP, playerHp[p] + HEAL_AMOUNT);
+                        } else if (hits(random, rules)) {
+                            int target = pickAlive(random, enemyHp, enemiesAlive);
+                            int damage = team.get(p).getDamage();
+                            enemyHp[target] = Math.max(0, enemyHp[target] - damage);
+                            tally.damageDealt += damage;
+                            if (enemyHp[target] == 0) enemiesAlive--;
+                        }
+                    }
+                    for (int e = 0; e < enemyHp.length && playersAlive > 0; e++) {
+                        if (enemyHp[e] == 0 || attacksLeft[e] == 0) continue;
+                        attacksLeft[e]--;
+                        int target = pickAlive(random, playerHp, playersAlive);
+                        playerHp[target] = Math.max(0, playerHp[target] - enemies.get(e).getAttackPower());
+                        if (playerHp[target] == 0) playersAlive--;
+                    }
+                }
+                record(tally, round - 1, enemiesAlive == 0, playersAlive == 0);
+            }
+        }
+    }
+
+    private static boolean heals(SplittableRandom random, Rules rules, int hp) {
+        return hp < rules.healBelow() && random.nextInt(100) < rules.healPercent();
+    }
+
+    private static boolean hits(SplittableRandom random, Rules rules) {
+        return rules.hitPercent() >= 100 || random.nextInt(100) < rules.hitPercent();
+    }
+
+    // Índice al azar entre los que tienen HP, sin crear listas
+    private static int pickAlive(SplittableRandom random, int[] hp, int alive) {
+        int skip = random.nextInt(alive);
+        for (int i = 0; i < hp.length; i++) {
+            if (hp[i] > 0 && skip-- == 0) return i;
+        }
+        throw new IllegalStateException("no hay objetivos vivos");
+    }
+
+    private static void record(Tally tally, int turns, boolean won, boolean lost) {
+        if (won) {
+            tally.wins++;
+        } else if (lost) {
+            tally.losses++;
+        } else {
+            tally.draws++;
+            return;
+        }
+        tally.turns[Math.min(turns, tally.turns.length - 1)]++;
+    }
+
+    private static final class Batch extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+        private static final long LEAF_BATTLES = 16 * 1024;
+
+        private final Scenario scenario;
+        private final long battles;
+        private final SplittableRandom random;
+
+        Batch(Scenario scenario, long battles, SplittableRandom random) {
+            this.scenario = scenario;
+            this.battles = battles;
+            this.random = random;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (battles <= LEAF_BATTLES) {
+                Tally tally = new Tally(scenario.rules().maxTurns());
+                scenario.run(random, battles, tally);
+                return tally;
+            }
+            long half = battles / 2;
+            Batch left = new Batch(scenario, half, random.split());
+            left.fork();
+            Tally tally = new Batch(scenario, battles - half, random).compute();
+            tally.merge(left.join());
+            return tally;
+        }
+    }
+
+    // Corre cada escenario en el pool común; cada uno recibe su propio flujo aleatorio
+    static List<Tally> simulate(List<? extends Scenario> scenarios, long battles, long seed) {
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Batch> batches = new ArrayList<>(scenarios.size());
+        for (Scenario scenario : scenarios) {
+            batches.add(new Batch(scenario, battles, root.split()));
+        }
+        List<Tally> tallies = new ArrayList<>(batches.size());
+        for (Batch batch : ForkJoinTask.invokeAll(batches)) {
+            tallies.add(batch.join());
+        }
+        return tallies;
+    }
+
+    public static void main(String[] args) {
+        long battles = args.length > 0 ? Long.parseLong(args[0]) : 200_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        int healBelow = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        Rules pvp = new Rules(healBelow, 50, 100, 400);
+        Rules pve = new Rules(healBelow, 50, 50, 100);
+        List<Weapons> weapons = Weapons.SERVER_ARSENAL;
+        List<Enemy> enemies = GameMain.crearEnemigos();
+
+        System.out.printf("Simulación: %d batallas por escenario, semilla %d, curarse bajo %d HP, %d hilos%n",
+            battles, seed, healBelow, ForkJoinPool.commonPool().getParallelism());
+        long start = System.nanoTime();
+
+        List<Duel> duels = new ArrayList<>();
+        for (Weapons a : weapons) {
+            for (Weapons b : weapons) {
+                duels.add(new Duel(a, b, pvp));
+            }
+        }
+        List<Raid> raids = new ArrayList<>();
+        for (Weapons weapon : weapons) {
+            raids.add(new Raid(List.of(weapon, weapon), enemies, pve));
+        }
+        List<Tally> duelResults = simulate(duels, battles, seed);
+        List<Tally> raidResults = simulate(raids, battles, seed + 1);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("\n=== PVP: % DE VICTORIAS DE LA FILA CONTRA LA COLUMNA ===");
+        System.out.printf("%-24s", "");
+        for (int j = 0; j < weapons.size(); j++) {
+            System.out.printf(" %7s", "#" + (j + 1));
+        }
+        System.out.printf(" %9s %14s%n", "promedio", "turnos p50/p90");
+        for (int i = 0; i < weapons.size(); i++) {
+            Tally overall = new Tally(pvp.maxTurns());
+            System.out.printf("%-24s", "#" + (i + 1) + " " + weapons.get(i).getName());
+            for (int j = 0; j < weapons.size(); j++) {
+                Tally duel = duelResults.get(i * weapons.size() + j);
+                System.out.printf(" %6.1f%%", duel.winRate());
+                if (i != j) {
+                    overall.merge(duel);
+                }
+            }
+            System.out.printf(" %8.1f%% %8d/%-5d%n", overall.winRate(),
+                overall.turnsQuantile(0.50), overall.turnsQuantile(0.90));
+        }
+
+        System.out.println("\n=== PVE: DOS JUGADORES CON LA MISMA ARMA CONTRA " + enemies.size() + " ENEMIGOS ===");
+        System.out.printf("%-24s %9s %9s %9s %16s %12s%n",
+            "Arma", "victoria", "derrota", "empate", "rondas p50/p90/p99", "daño medio");
+        for (int i = 0; i < weapons.size(); i++) {
+            Tally raid = raidResults.get(i);
+            System.out.printf("%-24s %8.1f%% %8.1f%% %8.1f%% %8d/%d/%-5d %12.1f%n", weapons.get(i).getName(),
+                raid.winRate(), raid.losses * 100.0 / raid.battles(), raid.draws * 100.0 / raid.battles(),
+                raid.turnsQuantile(0.50), raid.turnsQuantile(0.90), raid.turnsQuantile(0.99),
+                (double) raid.damageDealt / raid.battles());
+        }
+
+        long total = battles * (duels.size() + raids.size());
+        System.out.printf("%n%d batallas en %.1f s (%.0f batallas/s)%n",
+            total, elapsed / 1e9, total / (elapsed / 1e9));
+    }
+}
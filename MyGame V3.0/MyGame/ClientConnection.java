@@ -0,0 +1,23 @@
+// ClientConnection.java - Canal de salida de un jugador, independiente del modo del servidor
+interface ClientConnection {
+    // Acumula un mensaje, codificado con el protocolo de la conexión, sin escribirlo todavía
+    void send(ServerMessage message, int a, int b, int c, String s);
+
+    default void send(String message) {
+        send(ServerMessage.TEXT, 0, 0, 0, message);
+    }
+
+    // Encola tras lo acumulado un mensaje ya codificado que comparten varios destinatarios
+    void sendShared(WireProtocol.Shared message);
+
+    // Cambia la codificación de todo lo que se envíe a partir de ahora
+    void setProtocol(WireProtocol protocol);
+
+    // Pasa lo acumulado a la cola de salida; la escritura no bloquea al llamador
+    void flush();
+
+    // Cierra la conexión subyacente
+    void close();
+
+    String getRemoteAddress();
+}
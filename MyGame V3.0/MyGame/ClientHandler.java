@@ -1,159 +1,261 @@
 // ClientHandler.java - VERSIÓN CON SISTEMA DE ESTADÍSTICAS Y DESCONEXIÓN AUTOMÁTICA
 import java.io.*;
 import java.net.*;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Consumer;
 import java.util.stream.*;
 
-public class ClientHandler extends Thread {
-    private static final List<Weapons> AVAILABLE_WEAPONS = List.of(
-        new Weapons("una yuca", 20),
-        new Weapons("el poder de la amistad", 15),
-        new Weapons("machete oxidado", 25),
-        new Weapons("$800 de cebollin", 18),
-        new Weapons("hueso de pollo", 22)
-    );
-
-    // Lista sincronizada de jugadores
-    private static final CopyOnWriteArrayList<ClientHandler> allPlayers = new CopyOnWriteArrayList<>();
+public class ClientHandler implements Runnable {
+    private static final List<Weapons> AVAILABLE_WEAPONS = Weapons.SERVER_ARSENAL;
+    // Largo máximo del nombre de jugador: los registros en disco lo guardan tal cual
+    static final int MAX_NAME_CHARS = 32;
+
+    // Directorio concurrente de jugadores (por nombre y en orden de conexión)
+    private static final PlayerDirectory allPlayers = new PlayerDirectory();
     
     // Sistema de estadísticas global
     private static final Map<String, PlayerStats> globalStats = new ConcurrentHashMap<>();
+    // Índice ordenado de las estadísticas globales, al día con cada addStats
+    private static final Leaderboard leaderboard = new Leaderboard();
+    // Las sesiones publican deltas aquí; un hilo los aplica en lotes a globalStats,
+    // al leaderboard y a la persistencia opcional
+    private static final StatsWriteBehind statsWriter = new StatsWriteBehind(
+        name -> globalStats.computeIfAbsent(name, k -> new PlayerStats(name, leaderboard)));
     
-    private final Socket socket;
     private final BufferedReader in;
-    private final PrintWriter out;
+    private final ClientConnection connection;
+    // Señal de fin de sesión propia (ya no depende de Thread.isAlive)
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    // Se abre cuando disconnect() terminó de publicar estadísticas y avisar a la sala
+    private final CountDownLatch disconnected = new CountDownLatch(1);
+    private final long sessionId;
+    // Rastreo de comandos limitado por jugador para no inundar el registro
+    private final GameLog.RateLimit commandTrace = new GameLog.RateLimit(GameLog.COMMANDS_PER_SECOND);
     private static final StatsProcessor statsProcessor = new StatsProcessor();
-    private long battleStartTime;
-    private int totalDamageDealt = 0;
     
     // Estado del jugador
     private final AtomicReference<String> playerName = new AtomicReference<>();
-    private final AtomicReference<Integer> hp = new AtomicReference<>(100);
     private final AtomicReference<Weapons> weapon = new AtomicReference<>();
-    private final AtomicReference<Boolean> inBattle = new AtomicReference<>(false);
-    private final AtomicReference<Boolean> inWeaponMenu = new AtomicReference<>(false);
-    private final AtomicReference<ClientHandler> opponent = new AtomicReference<>();
+    // Sala de la batalla PVP en curso: dueña del estado compartido con el oponente
+    private final AtomicReference<BattleRoom> battleRoom = new AtomicReference<>();
     
-    // Estadísticas individuales del jugador
-    private final AtomicReference<Integer> kills = new AtomicReference<>(0);
-    private final AtomicReference<Integer> deaths = new AtomicReference<>(0);
-    private final AtomicReference<Integer> totalDamage = new AtomicReference<>(0);
-
-    // Mapa de comandos de batalla
-    private final Map<String, Runnable> battleCommands = Map.of(
-        "ATTACK", this::attackOpponent,
-        "1", this::attackOpponent,
-        "HEAL", this::processHeal,
-        "2", this::processHeal,
-        "SURRENDER", this::surrenderBattle,
-        "S", this::surrenderBattle,
-        "STATS", this::showPlayerStats,
-        "STATUS", this::showPlayerStats
-    );
-
-    // Mapa de acciones
-    private final Map<String, Runnable> actionCommands = Map.of(
-        "ATTACK", this::processAttack,
-        "1", this::processAttack,
-        "HEAL", this::processHeal,
-        "2", this::processHeal,
-        "STATS", this::showPlayerStats,
-        "STATUS", this::showPlayerStats
-    );
-
-    // Mapa de comandos de información
-    private final Map<String, Runnable> infoCommands;
-    {
-        infoCommands = new HashMap<>();
-        infoCommands.put("STATUS", this::processStatus);
-        infoCommands.put("3", this::processStatus);
-        infoCommands.put("PLAYERS", this::processPlayers);
-        infoCommands.put("4", this::processPlayers);
-        infoCommands.put("RESET_ENEMIES", this::processResetEnemies);
-        infoCommands.put("8", this::processResetEnemies);
-        infoCommands.put("HELP", this::sendMainMenu);
-        infoCommands.put("9", this::sendMainMenu);
-        infoCommands.put("STATS", this::showPlayerStats);
-        infoCommands.put("LEADERBOARD", this::showLeaderboard);
-        infoCommands.put("LB", this::showLeaderboard);
-    }
-
+    // HP, banderas de menú/batalla y estadísticas de la sesión en primitivas atómicas
+    private final CombatState state = new CombatState();
+    // Kills, muertes y daño de la sesión ya sumados a las estadísticas globales
+    private final int[] reported = new int[3];
+
+    // Vocabulario de comandos por estado, compilado una sola vez. El orden de registro
+    // reproduce la precedencia: batalla > armas > acciones > desafíos > información
+    private static final CommandDispatcher IDLE_COMMANDS = registerRegularCommands(CommandDispatcher.builder()).build();
+    private static final CommandDispatcher BATTLE_COMMANDS = registerRegularCommands(CommandDispatcher.builder()
+        .exact(GameCommand.ATTACK_OPPONENT, "ATTACK", "1")
+        .exact(GameCommand.HEAL, "HEAL", "2")
+        .exact(GameCommand.SURRENDER, "SURRENDER", "S")
+        .exact(GameCommand.SHOW_STATS, "STATS", "STATUS")).build();
+    private static final CommandDispatcher WEAPON_MENU_COMMANDS = registerWeaponMenuCommands(CommandDispatcher.builder()).build();
+
+    private static CommandDispatcher.Builder registerRegularCommands(CommandDispatcher.Builder builder) {
+        return builder
+            // Armas
+            .exact(GameCommand.WEAPON_MENU, "WEAPONS", "5")
+            .prefix(GameCommand.EQUIP_WEAPON, "WEAPON:")
+            // Acciones
+            .exact(GameCommand.ATTACK_ENEMY, "ATTACK", "1")
+            .exact(GameCommand.HEAL, "HEAL", "2")
+            .exact(GameCommand.SHOW_STATS, "STATS", "STATUS")
+            // Desafíos
+            .prefix(GameCommand.CHALLENGE, "CHALLENGE:")
+            .prefix(GameCommand.ACCEPT, "ACCEPT:")
+            // Información
+            .exact(GameCommand.STATUS, "STATUS", "3")
+            .exact(GameCommand.PLAYERS, "PLAYERS", "4")
+            .exact(GameCommand.RESET_ENEMIES, "RESET_ENEMIES", "8")
+            .exact(GameCommand.HELP, "HELP", "9")
+            .exact(GameCommand.LEADERBOARD, "LEADERBOARD", "LB")
+            .prefix(GameCommand.LEADERBOARD_BY, "LB:")
+            .exact(GameCommand.RANK, "RANK")
+            .prefix(GameCommand.RANK_OF, "RANK:");
+    }
+
+    // En el menú de armas: el nombre tiene prioridad sobre el número
+    private static CommandDispatcher.Builder registerWeaponMenuCommands(CommandDispatcher.Builder builder) {
+        builder.exact(GameCommand.WEAPON_BACK, "BACK", "B", "0");
+        IntStream.range(0, AVAILABLE_WEAPONS.size())
+            .forEach(i -> builder.exact(GameCommand.SELECT_WEAPON, i, AVAILABLE_WEAPONS.get(i).getName()));
+        IntStream.range(0, AVAILABLE_WEAPONS.size())
+            .forEach(i -> builder.exact(GameCommand.SELECT_WEAPON, i, String.valueOf(i + 1)));
+        return builder;
+    }
+
+    // Menús fijos como plantillas: en binario se envía su texto una vez por conexión y luego solo el id
+    private static final int MAIN_MENU = ServerMessage.registerTemplate("""
+        === COMANDOS DISPONIBLES ===
+        1  - ATTACK       - Atacar enemigo PVE
+        2  - HEAL         - Curarse 15 HP (o revivir si estás muerto)
+        3  - STATUS       - Ver tu estado
+        4  - PLAYERS      - Listar jugadores
+        5  - WEAPONS      - Menú de armas
+        6  - CHALLENGE:nombre - Desafiar a jugador
+        7  - ACCEPT:nombre    - Aceptar desafío
+        8  - RESET_ENEMIES    - Reiniciar enemigos
+        9  - HELP         - Mostrar ayuda
+        STATS            - Ver tus estadísticas
+        LEADERBOARD      - Ver ranking global
+        LB:KILLS / LB:DAMAGE - Ranking por kills o por daño
+        RANK             - Ver tu posición en el ranking
+        0  - EXIT         - Salir
+        =============================
+        """);
+    private static final int BATTLE_MENU = ServerMessage.registerTemplate("""
+        === BATALLA PVP ===
+        1 - ATTACK    - Atacar a tu oponente
+        2 - HEAL      - Curarse 15 HP
+        S - SURRENDER - Rendirse
+        STATS        - Ver tus estadísticas
+        ===================
+        Tu HP: %d | HP Oponente: %d
+        """);
+    private static final int WEAPON_MENU = ServerMessage.registerTemplate(IntStream.range(0, AVAILABLE_WEAPONS.size())
+        .mapToObj(i -> {
+            Weapons w = AVAILABLE_WEAPONS.get(i);
+            return String.format("%d. %s (Daño: %d)", i + 1, w.getName(), w.getDamage());
+        })
+        .collect(Collectors.joining("\n",
+            "=== ARMAS DISPONIBLES ===\n",
+            "\n\nEscribe el número o nombre del arma que deseas equipar" +
+            "\nO escribe 'BACK' para volver al menú principal")));
+
+    // Modo bloqueante: este hilo lee del socket
     public ClientHandler(Socket socket) throws IOException {
-        this.socket = socket;
         this.in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-        this.out = new PrintWriter(socket.getOutputStream(), true);
-        allPlayers.add(this);
+        this.connection = new SocketConnection(socket);
+        this.sessionId = allPlayers.connect(this);
+    }
+
+    // Modo no bloqueante: un bucle de E/S entrega las líneas con onLine
+    ClientHandler(ClientConnection connection) {
+        this.in = null;
+        this.connection = connection;
+        this.sessionId = allPlayers.connect(this);
     }
 
     @Override
     public void run() {
         try {
-            sendMessage("CONNECTED_TO_SERVER");
-            requestPlayerName();
+            onConnect();
 
-            // Procesa comandos usando streams
+            // Procesa nombre y comandos usando streams
             in.lines()
-                .takeWhile(line -> !line.equals("EXIT") && !line.equals("0") && isAlive())
-                .forEach(this::processCommand);
+                .takeWhile(line -> running.get() && isSessionLine(line))
+                .forEach(this::onLine);
 
         } catch (Exception e) {
-            System.out.println("Error en handler para " + playerName.get() + ": " + e.getMessage());
+            // Tras stop() la lectura falla porque se cerró el socket: no es un error
+            if (running.get()) {
+                GameLog.error("Error en handler para ", playerName.get(), ": ", e.getMessage());
+            }
         } finally {
             cleanup();
         }
     }
 
-    private void requestPlayerName() {
-        sendMessage("Por favor, ingresa tu nombre de jugador:");
-        try {
-            in.lines()
-                .map(String::trim)
-                .filter(name -> !name.isEmpty())
-                .filter(this::isNameUnique)
-                .findFirst()
-                .ifPresent(name -> {
-                    playerName.set(name);
-                    initializePlayerStats(name);
-                    sendMessage("WELCOME " + name);
-                    System.out.println("Jugador registrado: " + name);
-                    sendMainMenu();
-                });
-        } catch (Exception e) {
-            System.out.println("Error leyendo nombre: " + e.getMessage());
+    void onConnect() {
+        OutputCoalescer.inBatch(this, () -> {
+            sendMessage("CONNECTED_TO_SERVER");
+            sendMessage("Por favor, ingresa tu nombre de jugador:");
+        });
+    }
+
+    // Indica si la línea mantiene la sesión abierta (EXIT o 0 la terminan una vez registrado)
+    boolean isSessionLine(String line) {
+        return playerName.get() == null || (!line.equals("EXIT") && !line.equals("0"));
+    }
+
+    // Punto de entrada común a ambos modos para cada línea recibida; toda la
+    // salida que genera se escribe al final en un solo bloque por destinatario
+    void onLine(String line) {
+        OutputCoalescer.inBatch(this, () -> Optional.ofNullable(playerName.get())
+            .ifPresentOrElse(
+                name -> processCommand(line),
+                () -> registerPlayerName(line)
+            ));
+    }
+
+    private void registerPlayerName(String line) {
+        // Antes del nombre el cliente puede pedir el protocolo binario; la confirmación va en texto
+        if (line.equals(WireProtocol.BINARY_REQUEST)) {
+            sendMessage(WireProtocol.BINARY_ACK);
+            connection.setProtocol(WireProtocol.BINARY);
+            return;
+        }
+
+        if (line.trim().length() > MAX_NAME_CHARS) {
+            sendMessage("ERROR: El nombre no puede tener más de " + MAX_NAME_CHARS + " caracteres");
+            return;
         }
+
+        Optional.of(line.trim())
+            .filter(name -> !name.isEmpty())
+            .filter(name -> allPlayers.reserveName(name, this))
+            .ifPresent(name -> {
+                playerName.set(name);
+                initializePlayerStats(name);
+                sendMessage("WELCOME " + name);
+                GameLog.info("Jugador registrado: ", name);
+                sendMainMenu();
+            });
     }
 
     // Inicializa las estadísticas del jugador
     private void initializePlayerStats(String name) {
-        globalStats.computeIfAbsent(name, k -> new PlayerStats(name));
-        kills.set(0);
-        deaths.set(0);
-        totalDamage.set(0);
+        globalStats.computeIfAbsent(name, k -> new PlayerStats(name, leaderboard));
+        synchronized (reported) {
+            state.resetCounters();
+            Arrays.fill(reported, 0);
+        }
     }
 
-    // Actualiza estadísticas globales
-    private void updateGlobalStats() {
+    // Publica lo conseguido desde la última llamada; llega a las estadísticas globales,
+    // al ranking y a disco en el próximo vaciado
+    void updateGlobalStats() {
         Optional.ofNullable(playerName.get())
             .ifPresent(name -> {
-                PlayerStats stats = globalStats.get(name);
-                if (stats != null) {
-                    stats.updateStats(kills.get(), deaths.get(), totalDamage.get());
+                int kills, deaths, damage;
+                synchronized (reported) {
+                    long snapshot = state.snapshot();
+                    int totalDamage = state.totalDamage();
+                    kills = CombatState.kills(snapshot) - reported[0];
+                    deaths = CombatState.deaths(snapshot) - reported[1];
+                    damage = totalDamage - reported[2];
+                    reported[0] = CombatState.kills(snapshot);
+                    reported[1] = CombatState.deaths(snapshot);
+                    reported[2] = totalDamage;
+                }
+                if (kills != 0 || deaths != 0 || damage != 0) {
+                    statsWriter.publish(name, kills, deaths, damage);
                 }
             });
     }
 
-    private boolean isNameUnique(String name) {
-        return allPlayers.stream()
-            .filter(p -> p != this && p.getPlayerName() != null)
-            .noneMatch(p -> p.getPlayerName().equalsIgnoreCase(name));
+    private void traceCommand(String line) {
+        if (!GameLog.isEnabled(GameLog.Level.INFO)) return;
+
+        int skipped = commandTrace.tryAcquire();
+        if (skipped < 0) return;
+
+        String name = playerName.get() != null ? playerName.get() : "cliente";
+        if (skipped > 0) {
+            GameLog.info("Omitidos ", skipped, " comandos de ", name);
+        }
+        GameLog.info("Recibido de ", name, ": ", line);
     }
 
     private void processCommand(String line) {
-        System.out.println("Recibido de " + 
-            Optional.ofNullable(playerName.get()).orElse("cliente") + ": " + line);
+        traceCommand(line);
 
         // Verifica si el jugador está muerto
         if (!isPlayerAlive() && !line.equalsIgnoreCase("HEAL")) {
@@ -161,170 +263,86 @@ public class ClientHandler extends Thread {
             return;
         }
 
-        Optional.of(line)
-            .filter(cmd -> inWeaponMenu.get())
-            .ifPresentOrElse(
-                cmd -> processWeaponMenuCommand(cmd).run(),
-                () -> processRegularCommand(line)
-            );
+        long snapshot = state.snapshot();
+        if (CombatState.inWeaponMenu(snapshot)) {
+            processWeaponMenuCommand(line, WEAPON_MENU_COMMANDS.resolve(line));
+        } else if (CombatState.inBattle(snapshot) && battleRoom.get() != null) {
+            processRegularCommand(line, BATTLE_COMMANDS.resolve(line));
+        } else {
+            processRegularCommand(line, IDLE_COMMANDS.resolve(line));
+        }
     }
 
-    private void processRegularCommand(String line) {
-        Optional.of(line)
-            .filter(cmd -> inBattle.get())
-            .flatMap(this::processBattleCommand)
-            .or(() -> processWeaponCommand(line))
-            .or(() -> processActionCommand(line))
-            .or(() -> processChallengeCommand(line))
-            .or(() -> processInfoCommand(line))
-            .ifPresentOrElse(
-                Runnable::run,
-                () -> sendMessage("UNKNOWN_COMMAND - Usa '9' o 'HELP' para ver comandos")
-            );
-    }
+    private void processRegularCommand(String line, CommandDispatcher.Route route) {
+        if (route == null) {
+            sendMessage("UNKNOWN_COMMAND - Usa '9' o 'HELP' para ver comandos");
+            return;
+        }
 
-    private Optional<Runnable> processBattleCommand(String line) {
-        return Optional.ofNullable(opponent.get())
-            .filter(opp -> inBattle.get())
-            .map(opp -> battleCommands.get(line.toUpperCase()))
-            .filter(Objects::nonNull);
+        switch (route.command) {
+            case ATTACK_OPPONENT -> submitBattleEvent(BattleRoom.EventType.ATTACK);
+            case SURRENDER -> submitBattleEvent(BattleRoom.EventType.SURRENDER);
+            case ATTACK_ENEMY -> processAttack();
+            case HEAL -> processHeal();
+            case SHOW_STATS -> showPlayerStats();
+            case STATUS -> processStatus();
+            case PLAYERS -> processPlayers();
+            case RESET_ENEMIES -> processResetEnemies();
+            case HELP -> sendMainMenu();
+            case LEADERBOARD -> sendMessage(leaderboard.render(Leaderboard.Ordering.KD));
+            case LEADERBOARD_BY -> showLeaderboard(route.argument(line));
+            case RANK -> showRank(playerName.get());
+            case RANK_OF -> showRank(route.argument(line));
+            case WEAPON_MENU -> showWeaponMenu();
+            case EQUIP_WEAPON -> findWeaponByName(route.argument(line))
+                .ifPresentOrElse(
+                    this::equipWeapon,
+                    () -> sendMessage("UNKNOWN_COMMAND - Usa '9' o 'HELP' para ver comandos")
+                );
+            case CHALLENGE -> processChallenge(route.argument(line));
+            case ACCEPT -> processAccept(route.argument(line));
+            default -> sendMessage("UNKNOWN_COMMAND - Usa '9' o 'HELP' para ver comandos");
+        }
     }
 
-    private void attackOpponent() {
-        Optional.ofNullable(opponent.get())
-            .filter(ClientHandler::isInBattle)
+    // Las acciones de batalla las procesa la sala, nunca este jugador sobre el otro
+    private void submitBattleEvent(BattleRoom.EventType type) {
+        Optional.ofNullable(battleRoom.get())
             .ifPresentOrElse(
-                target -> {
-                    int damage = Optional.ofNullable(weapon.get())
-                        .map(Weapons::getDamage)
-                        .orElse(10);
-                    
-                    // Actualiza daño total
-                    totalDamage.updateAndGet(current -> current + damage);
-                    totalDamageDealt += damage;
-                    
-                    target.takeDamage(damage, this);
-                    sendMessage("YOU_ATTACKED_OPPONENT:" + damage);
-                    sendMessage("HP_OPPONENT:" + target.getHp());
-
-                    Optional.of(target)
-                        .filter(t -> t.getHp() <= 0)
-                        .ifPresentOrElse(
-                            t -> {
-                                // Jugador obtiene un kill
-                                kills.updateAndGet(current -> current + 1);
-                                sendMessage("YOU_WIN");
-                                sendMessage("¡Obtuviste un KILL! Kills totales: " + kills.get());
-                                t.sendMessage("YOU_LOSE");
-                                t.recordDeath(); // Oponente registra muerte
-                                endBattleWithKill(t);
-                            },
-                            target::sendBattleMenu
-                        );
-                },
+                room -> room.submit(type, this),
                 () -> sendMessage("ERROR: No tienes un oponente válido")
             );
     }
 
-    private void takeDamage(int amount, ClientHandler attacker) {
-        hp.updateAndGet(currentHp -> Math.max(0, currentHp - amount));
-        sendMessage("HP:" + hp.get());
-        sendMessage("RECIBISTE_ATAQUE:" + amount + " de " + attacker.getPlayerName());
-        
-        Optional.of(hp.get())
-            .filter(health -> health <= 0)
-            .ifPresent(health -> {
-                sendMessage("YOU_DIED");
-                recordDeath();
-                // Notificar al atacante que obtuvo el kill (ya se hizo en attackOpponent)
-            });
-    }
-
-    // Registra una muerte y actualiza estadísticas
-    private void recordDeath() {
-        deaths.updateAndGet(current -> current + 1);
-        updateGlobalStats();
-        
-        // Si está en batalla, terminar la batalla automáticamente
-        if (inBattle.get()) {
-            Optional.ofNullable(opponent.get())
-                .ifPresent(opp -> {
-                    opp.sendMessage("TU_OPONENTE_HA_MUERTO");
-                    opp.endBattle();
-                });
-            endBattle();
+    // Llamado por la sala al cerrarse
+    void leaveBattleRoom(BattleRoom room) {
+        if (battleRoom.compareAndSet(room, null)) {
+            state.leaveBattle();
         }
-        
-        sendMessage("¡Has muerto! Muertes totales: " + deaths.get());
-        sendMessage("Usa 'HEAL' para revivir o 'EXIT' para salir.");
-    }
-
-    private void endBattleWithKill(ClientHandler defeatedPlayer) {
-        long duration = System.currentTimeMillis() - battleStartTime;
-        
-        Optional.ofNullable(opponent.get())
-            .ifPresent(opp -> {
-                MatchResult result = new MatchResult(
-                    playerName.get(),
-                    opp.getPlayerName(),
-                    totalDamageDealt,
-                    opp.totalDamageDealt,
-                    duration,
-                    Optional.ofNullable(weapon.get()).map(Weapons::getName).orElse("Sin arma"),
-                    Optional.ofNullable(opp.getWeapon()).map(Weapons::getName).orElse("Sin arma"),
-                    false
-                );
-                statsProcessor.addMatchResult(result);
-            });
-        
-        // Actualizar estadísticas globales
-        updateGlobalStats();
-        defeatedPlayer.updateGlobalStats();
-        
-        endBattle();
     }
 
-    private void surrenderBattle() {
-        sendMessage("TE_HAS_RENDIDO");
-        Optional.ofNullable(opponent.get())
-            .ifPresent(opp -> {
-                opp.sendMessage("TU_OPONENTE_SE_HA_RENDIDO");
-                opp.endBattle();
-            });
-        endBattle();
+    CombatState combatState() {
+        return state;
     }
 
-    private void endBattle() {
-        inBattle.set(false);
-        opponent.set(null);
-        battleStartTime = 0;
-        totalDamageDealt = 0;
-        sendMessage("BATTLE_END");
-        
-        // Si el jugador murió durante la batalla, no mostrar menú principal
-        if (isPlayerAlive()) {
-            sendMainMenu();
-        }
+    private ClientHandler getOpponent() {
+        return Optional.ofNullable(battleRoom.get())
+            .map(room -> room.opponentOf(this))
+            .orElse(null);
     }
 
-    private void sendBattleMenu() {
-        String battleMenu = """
-            === BATALLA PVP ===
-            1 - ATTACK    - Atacar a tu oponente
-            2 - HEAL      - Curarse 15 HP
-            S - SURRENDER - Rendirse
-            STATS        - Ver tus estadísticas
-            ===================
-            Tu HP: %d | HP Oponente: %d
-            """.formatted(hp.get(), 
-                Optional.ofNullable(opponent.get())
-                    .map(ClientHandler::getHp)
-                    .orElse(0));
-        sendMessage(battleMenu);
+    void sendBattleMenu() {
+        sendMenu(BATTLE_MENU, state.hp(),
+            Optional.ofNullable(getOpponent())
+                .map(ClientHandler::getHp)
+                .orElse(0));
     }
 
     // Muestra estadísticas del jugador
     private void showPlayerStats() {
+        long snapshot = state.snapshot();
+        int kills = CombatState.kills(snapshot);
+        int deaths = CombatState.deaths(snapshot);
         String stats = String.format("""
             === TUS ESTADÍSTICAS ===
             Nombre: %s
@@ -337,11 +355,11 @@ public class ClientHandler extends Thread {
             ========================
             """,
             playerName.get(),
-            hp.get(),
-            kills.get(),
-            deaths.get(),
-            totalDamage.get(),
-            deaths.get() > 0 ? (double) kills.get() / deaths.get() : kills.get(),
+            CombatState.hp(snapshot),
+            kills,
+            deaths,
+            state.totalDamage(),
+            deaths > 0 ? (double) kills / deaths : kills,
             Optional.ofNullable(weapon.get())
                 .map(w -> w.getName() + " (Daño: " + w.getDamage() + ")")
                 .orElse("Ninguna")
@@ -349,34 +367,30 @@ public class ClientHandler extends Thread {
         sendMessage(stats);
     }
 
-    // Muestra leaderboard global
-    private void showLeaderboard() {
-        StringBuilder leaderboard = new StringBuilder();
-        leaderboard.append("=== LEADERBOARD GLOBAL ===\n");
-        
-        globalStats.values().stream()
-            .sorted(Comparator.comparingDouble(PlayerStats::getKDRatio).reversed())
-            .limit(10)
-            .forEach(stats -> leaderboard.append(stats.toString()).append("\n"));
-        
-        leaderboard.append("==========================");
-        sendMessage(leaderboard.toString());
+    // Muestra el leaderboard global con el criterio pedido (KD, KILLS o DAMAGE)
+    private void showLeaderboard(String orderingName) {
+        Arrays.stream(Leaderboard.Ordering.values())
+            .filter(ordering -> ordering.name().equalsIgnoreCase(orderingName))
+            .findFirst()
+            .ifPresentOrElse(
+                ordering -> sendMessage(leaderboard.render(ordering)),
+                () -> sendMessage("ERROR: Criterio no válido. Usa LB:KD, LB:KILLS o LB:DAMAGE")
+            );
     }
 
-    private Optional<Runnable> processChallengeCommand(String line) {
-        return Stream.of(
-                Map.entry("CHALLENGE:", (Consumer<String>) this::processChallenge),
-                Map.entry("ACCEPT:", (Consumer<String>) this::processAccept)
-            )
-            .filter(entry -> line.startsWith(entry.getKey()))
-            .findFirst()
-            .map(entry -> (Runnable) () -> 
-                entry.getValue().accept(line.substring(entry.getKey().length()).trim())
+    private void showRank(String name) {
+        int total = leaderboard.size();
+        leaderboard.rankOf(name, Leaderboard.Ordering.KD)
+            .ifPresentOrElse(
+                rank -> sendMessage("RANK:" + name + " #" + rank + " de " + total
+                    + " | Kills: #" + leaderboard.rankOf(name, Leaderboard.Ordering.KILLS).orElse(rank)
+                    + " | Daño: #" + leaderboard.rankOf(name, Leaderboard.Ordering.DAMAGE).orElse(rank)),
+                () -> sendMessage("ERROR: Jugador '" + name + "' no encontrado en el ranking")
             );
     }
 
     private void processChallenge(String targetName) {
-        Optional.of(inBattle.get())
+        Optional.of(state.inBattle())
             .filter(battle -> !battle)
             .ifPresentOrElse(
                 battle -> findPlayerByName(targetName)
@@ -389,11 +403,9 @@ public class ClientHandler extends Thread {
     }
 
     private Optional<ClientHandler> findPlayerByName(String name) {
-        return allPlayers.stream()
+        return allPlayers.findByName(name)
             .filter(p -> p != this)
-            .filter(p -> p.getPlayerName() != null)
-            .filter(p -> p.getPlayerName().equalsIgnoreCase(name))
-            .findFirst();
+            .filter(p -> p.getPlayerName() != null);
     }
 
     private void sendChallengeToPlayer(ClientHandler target) {
@@ -401,7 +413,7 @@ public class ClientHandler extends Thread {
             .filter(t -> !t.isInBattle())
             .ifPresentOrElse(
                 t -> {
-                    t.sendMessage("CHALLENGE_REQUEST:" + playerName.get());
+                    t.send(ServerMessage.CHALLENGE_REQUEST, playerName.get());
                     sendMessage("CHALLENGE_SENT:" + t.getPlayerName() + " - Esperando respuesta...");
                 },
                 () -> sendMessage("ERROR: " + target.getPlayerName() + " ya está en batalla")
@@ -409,7 +421,7 @@ public class ClientHandler extends Thread {
     }
 
     private void processAccept(String challengerName) {
-        Optional.of(inBattle.get())
+        Optional.of(state.inBattle())
             .filter(battle -> !battle)
             .ifPresentOrElse(
                 battle -> findPlayerByName(challengerName)
@@ -431,73 +443,51 @@ public class ClientHandler extends Thread {
     }
 
     private void initializeBattle(ClientHandler challenger) {
-        challenger.setOpponent(this);
-        opponent.set(challenger);
-        inBattle.set(true);
-        challenger.inBattle.set(true);
-        
-        // Reiniciar HP para la batalla
-        hp.set(100);
-        challenger.hp.set(100);
-        
-        battleStartTime = System.currentTimeMillis();
+        // Entrar en batalla reinicia el HP; si el rival entró en otra a la vez, se deshace
+        if (state.enterBattle() < 0) {
+            sendMessage("ERROR: Ya estás en una batalla");
+            return;
+        }
+        if (challenger.state.enterBattle() < 0) {
+            state.leaveBattle();
+            sendMessage("ERROR: " + challenger.getPlayerName() + " ya está en otra batalla");
+            return;
+        }
+        BattleRoom room = new BattleRoom(challenger, this, statsProcessor);
+        challenger.battleRoom.set(room);
+        battleRoom.set(room);
         
-        String battleStartMsg = "BATTLE_START:" + challenger.getPlayerName() + " - ¡Que comience la batalla PVP!";
-        sendMessage(battleStartMsg);
-        challenger.sendMessage("BATTLE_START:" + playerName.get() + " - ¡Que comience la batalla PVP!");
+        send(ServerMessage.BATTLE_START, challenger.getPlayerName());
+        challenger.send(ServerMessage.BATTLE_START, playerName.get());
         
         sendBattleMenu();
         challenger.sendBattleMenu();
     }
 
-    private void setOpponent(ClientHandler opp) {
-        opponent.set(opp);
-        inBattle.set(true);
-    }
-
     // Menú de armas
     private void showWeaponMenu() {
-        String weaponMenu = IntStream.range(0, AVAILABLE_WEAPONS.size())
-            .mapToObj(i -> {
-                Weapons w = AVAILABLE_WEAPONS.get(i);
-                return String.format("%d. %s (Daño: %d)", i + 1, w.getName(), w.getDamage());
-            })
-            .collect(Collectors.joining("\n", 
-                "=== ARMAS DISPONIBLES ===\n", 
-                "\n\nEscribe el número o nombre del arma que deseas equipar" +
-                "\nO escribe 'BACK' para volver al menú principal"));
-
-        sendMessage(weaponMenu);
-        inWeaponMenu.set(true);
-    }
-
-    private Runnable processWeaponMenuCommand(String line) {
-        boolean isBackCommand = Stream.of("BACK", "B", "0")
-            .anyMatch(cmd -> cmd.equalsIgnoreCase(line));
-
-        return isBackCommand 
-            ? this::returnToMainMenu
-            : findSelectedWeapon(line)
-                .map(this::equipWeaponAction)
-                .orElse(this::showInvalidWeaponError);
-    }
-
-    private Runnable returnToMainMenu() {
-        return () -> {
-            sendMessage("Volviendo al menú principal...");
-            inWeaponMenu.set(false);
-            sendMainMenu();
-        };
+        sendMenu(WEAPON_MENU, 0, 0);
+        state.setInWeaponMenu(true);
     }
 
-    private Optional<Weapons> findSelectedWeapon(String input) {
-        return AVAILABLE_WEAPONS.stream()
-            .filter(w -> w.getName().equalsIgnoreCase(input))
-            .findFirst()
-            .or(() -> parseWeaponIndex(input)
-                .filter(index -> index >= 0 && index < AVAILABLE_WEAPONS.size())
-                .map(AVAILABLE_WEAPONS::get)
-            );
+    private void processWeaponMenuCommand(String line, CommandDispatcher.Route route) {
+        if (route != null && route.command == GameCommand.WEAPON_BACK) {
+            returnToMainMenu();
+        } else {
+            Optional.ofNullable(route)
+                .map(r -> AVAILABLE_WEAPONS.get(r.value))
+                .or(() -> parseWeaponIndex(line)
+                    .filter(index -> index >= 0 && index < AVAILABLE_WEAPONS.size())
+                    .map(AVAILABLE_WEAPONS::get)
+                )
+                .ifPresentOrElse(this::equipWeapon, this::showInvalidWeaponError);
+        }
+    }
+
+    private void returnToMainMenu() {
+        sendMessage("Volviendo al menú principal...");
+        state.setInWeaponMenu(false);
+        sendMainMenu();
     }
 
     private Optional<Integer> parseWeaponIndex(String input) {
@@ -508,33 +498,17 @@ public class ClientHandler extends Thread {
         }
     }
 
-    private Runnable equipWeaponAction(Weapons selectedWeapon) {
-        return () -> {
-            weapon.set(selectedWeapon);
-            sendMessage("ARMA EQUIPADA: " + selectedWeapon.getName() + 
-                " (Daño: " + selectedWeapon.getDamage() + ")");
-            inWeaponMenu.set(false);
-            sendMainMenu();
-        };
+    private void equipWeapon(Weapons selectedWeapon) {
+        weapon.set(selectedWeapon);
+        sendMessage("ARMA EQUIPADA: " + selectedWeapon.getName() + 
+            " (Daño: " + selectedWeapon.getDamage() + ")");
+        state.setInWeaponMenu(false);
+        sendMainMenu();
     }
 
-    private Runnable showInvalidWeaponError() {
-        return () -> {
-            sendMessage("ERROR: Arma no válida. Por favor selecciona una opción válida.");
-            showWeaponMenu();
-        };
-    }
-
-    private Optional<Runnable> processWeaponCommand(String line) {
-        return Optional.of(line)
-            .filter(cmd -> cmd.equalsIgnoreCase("WEAPONS") || cmd.equals("5"))
-            .map(cmd -> (Runnable) this::showWeaponMenu)
-            .or(() -> Optional.of(line)
-                .filter(cmd -> cmd.startsWith("WEAPON:"))
-                .map(cmd -> cmd.substring(7).trim())
-                .flatMap(this::findWeaponByName)
-                .map(this::equipWeaponAction)
-            );
+    private void showInvalidWeaponError() {
+        sendMessage("ERROR: Arma no válida. Por favor selecciona una opción válida.");
+        showWeaponMenu();
     }
 
     private Optional<Weapons> findWeaponByName(String weaponName) {
@@ -543,12 +517,8 @@ public class ClientHandler extends Thread {
             .findFirst();
     }
 
-    private Optional<Runnable> processActionCommand(String line) {
-        return Optional.ofNullable(actionCommands.get(line.toUpperCase()));
-    }
-
     private void processAttack() {
-        Optional.of(inBattle.get())
+        Optional.of(state.inBattle())
             .filter(battle -> !battle)
             .ifPresent(battle -> attackEnemy());
     }
@@ -559,52 +529,57 @@ public class ClientHandler extends Thread {
             .orElse(10);
         
         // Actualizar daño total incluso en PVE
-        totalDamage.updateAndGet(current -> current + damage);
+        state.addDamage(damage);
         
-        sendMessage("YOU_ATTACKED:Enemigo:" + damage);
+        send(ServerMessage.ATTACKED_ENEMY, damage);
         
         Optional.of(new Random().nextInt(100))
             .filter(roll -> roll < 30)
             .ifPresent(roll -> {
                 sendMessage("ENEMY_DEFEATED:Enemigo");
                 // En PVE también cuenta como kill
-                kills.updateAndGet(current -> current + 1);
-                sendMessage("¡Obtuviste un KILL! Kills totales: " + kills.get());
+                long snapshot = state.addKill();
+                sendMessage("¡Obtuviste un KILL! Kills totales: " + CombatState.kills(snapshot));
                 updateGlobalStats();
             });
     }
 
     private void processHeal() {
-        // Si está muerto, revivir con 50 HP
-        if (!isPlayerAlive()) {
-            hp.set(50);
-            sendMessage("REVIVED:50");
-            sendMessage("HP:" + hp.get());
+        // En batalla la curación pasa por la sala para ordenarse con los ataques
+        Optional.ofNullable(battleRoom.get())
+            .ifPresentOrElse(
+                room -> room.submit(BattleRoom.EventType.HEAL, this),
+                this::applyHeal
+            );
+    }
+
+    void applyHeal() {
+        // Si está muerto, revivir con 50 HP; si está vivo, curar normal
+        long snapshot = state.healOrRevive(15, 50);
+        if (CombatState.revived(snapshot)) {
+            send(ServerMessage.REVIVED, 50);
+            send(ServerMessage.HP, CombatState.hp(snapshot));
             sendMainMenu();
         } else {
-            // Curar normal si está vivo
-            hp.updateAndGet(currentHp -> Math.min(100, currentHp + 15));
-            sendMessage("HEALED:15");
-            sendMessage("HP:" + hp.get());
+            send(ServerMessage.HEALED, 15);
+            send(ServerMessage.HP, CombatState.hp(snapshot));
         }
     }
 
-    private Optional<Runnable> processInfoCommand(String line) {
-        return Optional.ofNullable(infoCommands.get(line.toUpperCase()));
-    }
-
     private void processStatus() {
         String weaponInfo = Optional.ofNullable(weapon.get())
             .map(w -> w.getName() + " (Daño: " + w.getDamage() + ")")
             .orElse("Ninguna equipada (Daño base: 10)");
         
-        String battleInfo = Optional.ofNullable(opponent.get())
+        String battleInfo = Optional.ofNullable(getOpponent())
             .map(opp -> "EN BATALLA PVP contra " + opp.getPlayerName() + " (HP: " + opp.getHp() + ")")
             .orElse("Disponible");
         
+        long snapshot = state.snapshot();
         String status = String.format(
             "=== TU ESTADO ===\nHP: %d/100\nARMA: %s\nESTADO: %s\nKills: %d | Muertes: %d | Daño: %d",
-            hp.get(), weaponInfo, battleInfo, kills.get(), deaths.get(), totalDamage.get()
+            CombatState.hp(snapshot), weaponInfo, battleInfo,
+            CombatState.kills(snapshot), CombatState.deaths(snapshot), state.totalDamage()
         );
         
         sendMessage(status);
@@ -637,107 +612,179 @@ public class ClientHandler extends Thread {
 
     private void processResetEnemies() {
         sendMessage("ENEMIES_RESET");
-        allPlayers.stream()
-            .filter(p -> p != this)
-            .forEach(p -> p.sendMessage("ENEMIES_HAVE_BEEN_RESET"));
-    }
-
-    private void sendMainMenu() {
-        String menu = """
-            === COMANDOS DISPONIBLES ===
-            1  - ATTACK       - Atacar enemigo PVE
-            2  - HEAL         - Curarse 15 HP (o revivir si estás muerto)
-            3  - STATUS       - Ver tu estado
-            4  - PLAYERS      - Listar jugadores
-            5  - WEAPONS      - Menú de armas
-            6  - CHALLENGE:nombre - Desafiar a jugador
-            7  - ACCEPT:nombre    - Aceptar desafío
-            8  - RESET_ENEMIES    - Reiniciar enemigos
-            9  - HELP         - Mostrar ayuda
-            STATS            - Ver tus estadísticas
-            LEADERBOARD      - Ver ranking global
-            0  - EXIT         - Salir
-            =============================
-            """;
-        sendMessage(menu);
+        broadcast(allPlayers.stream().filter(p -> p != this), "ENEMIES_HAVE_BEEN_RESET");
+    }
+
+    void sendMainMenu() {
+        sendMenu(MAIN_MENU, 0, 0);
     }
 
     public void sendMessage(String msg) {
-        Optional.ofNullable(out).ifPresent(o -> o.println(msg));
+        send(ServerMessage.TEXT, 0, 0, 0, msg);
     }
 
-    private void cleanup() {
-        try {
-            Optional.ofNullable(socket)
-                .filter(s -> !s.isClosed())
-                .ifPresent(s -> {
-                    try { s.close(); } catch (IOException ignored) {}
-                });
-        } catch (Exception ignored) {}
+    void send(ServerMessage message) {
+        send(message, 0, 0, 0, null);
+    }
+
+    void send(ServerMessage message, int value) {
+        send(message, value, 0, 0, null);
+    }
+
+    void send(ServerMessage message, String text) {
+        send(message, 0, 0, 0, text);
+    }
+
+    void send(ServerMessage message, int value, String text) {
+        send(message, value, 0, 0, text);
+    }
+
+    private void sendMenu(int template, int first, int second) {
+        send(ServerMessage.MENU, template, first, second, null);
+    }
+
+    // Cada conexión codifica según el protocolo que negoció (texto o binario)
+    private void send(ServerMessage message, int a, int b, int c, String s) {
+        connection.send(message, a, b, c, s);
+        OutputCoalescer.touched(this);
+    }
+
+    // Difunde un mensaje codificándolo una sola vez por protocolo: cada destinatario encola
+    // el mismo bloque en su cola acotada y lo escribe su propio escritor, nunca quien difunde
+    static void broadcast(Stream<ClientHandler> recipients, String message) {
+        WireProtocol.Shared shared = new WireProtocol.Shared(ServerMessage.TEXT, 0, message);
+        recipients.forEach(recipient -> recipient.connection.sendShared(shared));
+    }
+
+    void flushOutput() {
+        connection.flush();
+    }
+
+    // Termina la sesión desde cualquier hilo; cerrar la conexión desbloquea la lectura
+    void stop() {
+        running.set(false);
+        connection.close();
+    }
+
+    // Al apagar: termina todas las sesiones y espera a que se desconecten del todo.
+    // Devuelve false si alguna no terminó a tiempo
+    static boolean stopAll(long timeoutMillis) throws InterruptedException {
+        List<ClientHandler> sessions = getConnectedPlayers();
+        sessions.forEach(ClientHandler::stop);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (ClientHandler session : sessions) {
+            if (!session.disconnected.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void cleanup() {
+        OutputCoalescer.inBatch(this, this::disconnect);
+    }
+
+    private void disconnect() {
+        running.set(false);
+        connection.close();
         
-        allPlayers.remove(this);
+        allPlayers.disconnect(sessionId, this);
         
         // Actualizar estadísticas globales antes de desconectar
         updateGlobalStats();
         
-        Optional.ofNullable(opponent.get())
-            .ifPresent(opp -> {
-                opp.sendMessage("TU_OPONENTE_SE_DESCONECTO");
-                opp.endBattle();
-            });
+        Optional.ofNullable(battleRoom.get())
+            .ifPresent(room -> room.submit(BattleRoom.EventType.DISCONNECT, this));
         
-        System.out.println("Jugador " + playerName.get() + " desconectado. Stats: " +
-            kills.get() + " kills, " + deaths.get() + " deaths, " + totalDamage.get() + " damage");
+        if (GameLog.isEnabled(GameLog.Level.INFO)) {
+            long snapshot = state.snapshot();
+            GameLog.info("Jugador ", playerName.get(), " desconectado. Stats: ",
+                CombatState.kills(snapshot) + " kills, " + CombatState.deaths(snapshot) + " deaths, " +
+                state.totalDamage() + " damage");
+        }
+        disconnected.countDown();
+    }
+
+    // Carga las estadísticas globales guardadas y el ranking, y persiste las siguientes.
+    // Lo devuelto se cierra al apagar: vacía lo pendiente antes de cerrar el registro
+    static StatsWriteBehind openPlayerStats(Path directory) throws IOException {
+        PlayerStatsStore store = PlayerStatsStore.open(directory, (name, totals) -> globalStats
+            .computeIfAbsent(name, k -> new PlayerStats(name, leaderboard))
+            .addStats(totals[0], totals[1], totals[2]));
+        statsWriter.persistTo(store);
+        return statsWriter;
+    }
+
+    // Reconstruye historial, estadísticas globales y ranking desde el registro persistente y
+    // deja conectadas las batallas nuevas. Sin estadísticas persistentes, los totales
+    // globales se reconstruyen desde aquí, aunque solo con kills, muertes y daño PVP
+    static MatchJournal openMatchJournal(Path directory) throws IOException {
+        Map<String, int[]> totals = new HashMap<>();
+        MatchJournal journal = MatchJournal.open(directory, result -> {
+            statsProcessor.replay(result);
+            int[] winner = totals.computeIfAbsent(result.getWinner(), k -> new int[3]);
+            int[] loser = totals.computeIfAbsent(result.getLoser(), k -> new int[3]);
+            if (!result.wasSurrender()) {
+                winner[0]++;
+                loser[1]++;
+            }
+            winner[2] += result.getWinnerDamageDealt();
+            loser[2] += result.getLoserDamageDealt();
+        });
+
+        if (!statsWriter.isPersistent()) {
+            totals.forEach((name, values) -> globalStats
+                .computeIfAbsent(name, k -> new PlayerStats(name, leaderboard))
+                .addStats(values[0], values[1], values[2]));
+        }
+        statsProcessor.persistTo(journal);
+        return journal;
+    }
+
+    static long getRecordedMatchCount() {
+        return statsProcessor.getMatchCount();
+    }
+
+    // Las batallas de más de maxAge quedan solo en resúmenes, también al reproducir el registro
+    static void retainMatchesFor(Duration maxAge) {
+        statsProcessor.retainFor(maxAge);
+    }
+
+    // Devuelve cuántas batallas pasaron a los resúmenes
+    static int evictExpiredMatches() {
+        return statsProcessor.evictExpired();
+    }
+
+    // Estadísticas para el puerto de administración, separadas de las que actualizan las salas
+    static StatsProcessor statsFollower() {
+        return statsProcessor.follower();
+    }
+
+    static int getRankedPlayerCount() {
+        return leaderboard.size();
+    }
+
+    // Vista de los jugadores conectados, en orden de conexión
+    public static List<ClientHandler> getConnectedPlayers() {
+        return allPlayers.stream().collect(Collectors.toList());
+    }
+
+    public static int getConnectedCount() {
+        return allPlayers.size();
     }
 
     // Métodos auxiliares para verificar estado
     public boolean isPlayerAlive() {
-        return hp.get() > 0;
+        return state.hp() > 0;
     }
 
     // Getters para estadísticas
-    public int getKills() { return kills.get(); }
-    public int getDeaths() { return deaths.get(); }
-    public int getTotalDamage() { return totalDamage.get(); }
+    public int getKills() { return state.kills(); }
+    public int getDeaths() { return state.deaths(); }
+    public int getTotalDamage() { return state.totalDamage(); }
 
     public String getPlayerName() { return playerName.get(); }
-    public int getHp() { return hp.get(); }
+    public int getHp() { return state.hp(); }
     public Weapons getWeapon() { return weapon.get(); }
-    public boolean isInBattle() { return inBattle.get(); }
+    public boolean isInBattle() { return state.inBattle(); }
 }
-
-// Clase para manejar estadísticas de jugador
-class PlayerStats {
-    private final String playerName;
-    private int kills;
-    private int deaths;
-    private int totalDamage;
-    
-    public PlayerStats(String playerName) {
-        this.playerName = playerName;
-        this.kills = 0;
-        this.deaths = 0;
-        this.totalDamage = 0;
-    }
-    
-    public void updateStats(int newKills, int newDeaths, int newDamage) {
-        this.kills = newKills;
-        this.deaths = newDeaths;
-        this.totalDamage = newDamage;
-    }
-    
-    public double getKDRatio() {
-        return deaths > 0 ? (double) kills / deaths : kills;
-    }
-    
-    public String getPlayerName() { return playerName; }
-    public int getKills() { return kills; }
-    public int getDeaths() { return deaths; }
-    public int getTotalDamage() { return totalDamage; }
-    
-    @Override
-    public String toString() {
-        return String.format("%-15s | K: %-3d | D: %-3d | K/D: %-5.2f | Daño: %-6d",
-            playerName, kills, deaths, getKDRatio(), totalDamage);
-    }
-}
\ No newline at end of file
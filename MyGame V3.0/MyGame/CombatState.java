@@ -0,0 +1,149 @@
+// CombatState.java - Estado de combate de un jugador empaquetado en una palabra atómica
+import java.util.concurrent.atomic.AtomicLong;
+
+final class CombatState {
+    static final int MAX_HP = 100;
+
+    // Distribución de bits de la palabra: HP, banderas y contadores de la sesión
+    private static final int HP_BITS = 8;
+    private static final int COUNTER_BITS = 24;
+    private static final long HP_MASK = (1L << HP_BITS) - 1;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final long IN_BATTLE = 1L << 8;
+    private static final long IN_WEAPON_MENU = 1L << 9;
+    private static final int KILLS_SHIFT = 10;
+    private static final int DEATHS_SHIFT = KILLS_SHIFT + COUNTER_BITS;
+
+    // Eventos que solo viajan en la instantánea devuelta (nunca se guardan)
+    private static final long EVENT_DIED = 1L << 62;
+    private static final long EVENT_REVIVED = 1L << 61;
+
+    private final AtomicLong word = new AtomicLong(MAX_HP);
+    // El daño total crece sin límite práctico: va en su propia palabra
+    private final AtomicLong totalDamage = new AtomicLong();
+
+    // === LECTURA DE INSTANTÁNEAS ===
+
+    long snapshot() {
+        return word.get();
+    }
+
+    static int hp(long snapshot) {
+        return (int) (snapshot & HP_MASK);
+    }
+
+    static int kills(long snapshot) {
+        return (int) ((snapshot >>> KILLS_SHIFT) & COUNTER_MASK);
+    }
+
+    static int deaths(long snapshot) {
+        return (int) ((snapshot >>> DEATHS_SHIFT) & COUNTER_MASK);
+    }
+
+    static boolean inBattle(long snapshot) {
+        return (snapshot & IN_BATTLE) != 0;
+    }
+
+    static boolean inWeaponMenu(long snapshot) {
+        return (snapshot & IN_WEAPON_MENU) != 0;
+    }
+
+    // Verdadero solo en la instantánea de la operación que dejó el HP en 0
+    static boolean died(long snapshot) {
+        return (snapshot & EVENT_DIED) != 0;
+    }
+
+    static boolean revived(long snapshot) {
+        return (snapshot & EVENT_REVIVED) != 0;
+    }
+
+    int hp() { return hp(word.get()); }
+    int kills() { return kills(word.get()); }
+    int deaths() { return deaths(word.get()); }
+    boolean inBattle() { return inBattle(word.get()); }
+    boolean inWeaponMenu() { return inWeaponMenu(word.get()); }
+    int totalDamage() { return (int) totalDamage.get(); }
+
+    // === OPERACIONES COMPUESTAS ===
+
+    // Aplica daño y, si el HP llega a 0, cuenta la muerte en la misma operación
+    long takeDamage(int amount) {
+        long prev, next;
+        do {
+            prev = word.get();
+            int hp = hp(prev);
+            int newHp = Math.max(0, hp - amount);
+            next = withHp(prev, newHp);
+            if (hp > 0 && newHp == 0) {
+                next = withDeaths(next, deaths(prev) + 1);
+            }
+        } while (!word.compareAndSet(prev, next));
+        return hp(prev) > 0 && hp(next) == 0 ? next | EVENT_DIED : next;
+    }
+
+    // Cura si está vivo; si está muerto revive con reviveHp
+    long healOrRevive(int amount, int reviveHp) {
+        long prev, next;
+        do {
+            prev = word.get();
+            int hp = hp(prev);
+            next = withHp(prev, hp == 0 ? reviveHp : Math.min(MAX_HP, hp + amount));
+        } while (!word.compareAndSet(prev, next));
+        return hp(prev) == 0 ? next | EVENT_REVIVED : next;
+    }
+
+    // Entra en batalla con HP completo; falla (devuelve -1) si ya estaba en una
+    long enterBattle() {
+        long prev, next;
+        do {
+            prev = word.get();
+            if (inBattle(prev)) return -1;
+            next = withHp(prev | IN_BATTLE, MAX_HP);
+        } while (!word.compareAndSet(prev, next));
+        return next;
+    }
+
+    // Sale de la batalla; devuelve -1 si no estaba en una (evita finales duplicados)
+    long leaveBattle() {
+        long prev, next;
+        do {
+            prev = word.get();
+            if (!inBattle(prev)) return -1;
+            next = prev & ~IN_BATTLE;
+        } while (!word.compareAndSet(prev, next));
+        return next;
+    }
+
+    long setInWeaponMenu(boolean value) {
+        return value ? word.updateAndGet(w -> w | IN_WEAPON_MENU) : word.updateAndGet(w -> w & ~IN_WEAPON_MENU);
+    }
+
+    long addKill() {
+        return word.updateAndGet(w -> withKills(w, kills(w) + 1));
+    }
+
+    int addDamage(int amount) {
+        return (int) totalDamage.addAndGet(amount);
+    }
+
+    // Reinicia los contadores de la sesión sin tocar HP ni banderas
+    void resetCounters() {
+        word.updateAndGet(w -> withDeaths(withKills(w, 0), 0));
+        totalDamage.set(0);
+    }
+
+    private static long withHp(long w, int hp) {
+        return (w & ~HP_MASK) | (hp & HP_MASK);
+    }
+
+    // Los contadores se saturan en vez de desbordarse sobre los bits vecinos
+    private static long withKills(long w, int kills) {
+        long value = Math.min(kills, COUNTER_MASK);
+        return (w & ~(COUNTER_MASK << KILLS_SHIFT)) | (value << KILLS_SHIFT);
+    }
+
+    private static long withDeaths(long w, int deaths) {
+        long value = Math.min(deaths, COUNTER_MASK);
+        return (w & ~(COUNTER_MASK << DEATHS_SHIFT)) | (value << DEATHS_SHIFT);
+    }
+}
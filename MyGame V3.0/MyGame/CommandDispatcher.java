@@ -0,0 +1,123 @@
+// CommandDispatcher.java - Tabla de comandos precompilada: resuelve comando y argumento en una pasada
+import java.util.*;
+
+final class CommandDispatcher {
+
+    // Resultado inmutable compartido: no se crea nada al resolver una línea
+    static final class Route {
+        final GameCommand command;
+        // Para prefijos, longitud del prefijo (inicio del argumento); para armas, su índice
+        final int value;
+
+        private Route(GameCommand command, int value) {
+            this.command = command;
+            this.value = value;
+        }
+
+        // Argumento de un comando con prefijo (lo que sigue a "CHALLENGE:", etc.)
+        String argument(String line) {
+            return line.substring(value).trim();
+        }
+    }
+
+    private static final int ALPHABET = 128;
+
+    private static final class Node {
+        private final Node[] next = new Node[ALPHABET];
+        private Route route;
+    }
+
+    // Comandos exactos sin distinguir mayúsculas y prefijos que sí las distinguen
+    private final Node exactRoot;
+    private final Node prefixRoot;
+
+    private CommandDispatcher(Node exactRoot, Node prefixRoot) {
+        this.exactRoot = exactRoot;
+        this.prefixRoot = prefixRoot;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    // Recorre ambos árboles a la vez; devuelve null si la línea no es un comando conocido
+    Route resolve(String line) {
+        Node exact = exactRoot;
+        Node prefix = prefixRoot;
+
+        for (int i = 0; i < line.length(); i++) {
+            if (prefix != null && prefix.route != null) {
+                return prefix.route;
+            }
+
+            char c = line.charAt(i);
+            if (c >= ALPHABET) {
+                return null;
+            }
+            exact = exact != null ? exact.next[c] : null;
+            prefix = prefix != null ? prefix.next[c] : null;
+
+            if (exact == null && prefix == null) {
+                return null;
+            }
+        }
+
+        if (exact != null && exact.route != null) {
+            return exact.route;
+        }
+        return prefix != null ? prefix.route : null;
+    }
+
+    static final class Builder {
+        private final Node exactRoot = new Node();
+        private final Node prefixRoot = new Node();
+
+        // Comando exacto (equivale a comparar con toUpperCase); gana el primero registrado
+        Builder exact(GameCommand command, String... keys) {
+            return exact(command, 0, keys);
+        }
+
+        Builder exact(GameCommand command, int value, String... keys) {
+            for (String key : keys) {
+                Node node = exactRoot;
+                for (char c : key.toUpperCase(Locale.ROOT).toCharArray()) {
+                    checkAscii(key, c);
+                    Node child = node.next[c];
+                    if (child == null) {
+                        child = new Node();
+                        node.next[c] = child;
+                        node.next[Character.toLowerCase(c)] = child;
+                    }
+                    node = child;
+                }
+                if (node.route == null) {
+                    node.route = new Route(command, value);
+                }
+            }
+            return this;
+        }
+
+        // Comando con argumento (equivale a startsWith, distingue mayúsculas)
+        Builder prefix(GameCommand command, String key) {
+            Node node = prefixRoot;
+            for (char c : key.toCharArray()) {
+                checkAscii(key, c);
+                node = node.next[c] != null ? node.next[c] : (node.next[c] = new Node());
+            }
+            if (node.route == null) {
+                node.route = new Route(command, key.length());
+            }
+            return this;
+        }
+
+        private static void checkAscii(String key, char c) {
+            if (c >= ALPHABET) {
+                throw new IllegalArgumentException("Comando no ASCII: " + key);
+            }
+        }
+
+        CommandDispatcher build() {
+            return new CommandDispatcher(exactRoot, prefixRoot);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+// DistinctCounter.java - Conteo aproximado de valores distintos (HyperLogLog) en 4 KiB
+import java.io.*;
+
+// 4096 registros de un byte: error típico del 1.6% para cualquier cantidad de valores.
+// Combinar dos contadores es tomar el máximo de cada registro, en cualquier orden
+final class DistinctCounter {
+    private static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers = new byte[REGISTERS];
+
+    void add(String value) {
+        addHash(mix(fnv(value)));
+    }
+
+    // Pareja sin orden: (a, b) y (b, a) cuentan como el mismo valor en cualquier servidor
+    void addPair(String a, String b) {
+        long first = fnv(a);
+        long second = fnv(b);
+        addHash(mix(Math.min(first, second) * 0x9E3779B97F4A7C15L + Math.max(first, second)));
+    }
+
+    private synchronized void addHash(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Posición del primer 1 en los bits restantes; un centinela la acota si son todos cero
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    void merge(DistinctCounter other) {
+        byte[] copy;
+        synchronized (other) {
+            copy = other.registers.clone();
+        }
+        synchronized (this) {
+            for (int i = 0; i < REGISTERS; i++) {
+                if (copy[i] > registers[i]) {
+                    registers[i] = copy[i];
+                }
+            }
+        }
+    }
+
+    synchronized long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) zeros++;
+        }
+        double raw = ALPHA * REGISTERS * REGISTERS / sum;
+        // Con pocos valores muchos registros siguen vacíos: se cuenta por ocupación
+        if (raw <= 2.5 * REGISTERS && zeros > 0) {
+            return Math.round(REGISTERS * Math.log((double) REGISTERS / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeByte(PRECISION);
+        out.write(registers);
+    }
+
+    static DistinctCounter readFrom(DataInput in) throws IOException {
+        int precision = in.readUnsignedByte();
+        if (precision != PRECISION) {
+            throw new IOException("Precisión de contador no soportada: " + precision);
+        }
+        DistinctCounter counter = new DistinctCounter();
+        in.readFully(counter.registers);
+        return counter;
+    }
+
+    // FNV-1a de 64 bits sobre los caracteres
+    private static long fnv(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Mezcla final de MurmurHash3: reparte los bits altos que usa el índice del registro
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe5d7a743L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
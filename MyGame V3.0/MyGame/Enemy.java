@@ -21,10 +21,12 @@ public final class Enemy {
     // CORREGIDO: Retorna nuevo Enemy con daño aplicado
     public Enemy takeDamage(int amount) {
         int newHp = hp - amount;
-        System.out.println(enemyName + " recibe " + amount + " de daño. HP: " + newHp);
+        if (GameLog.isEnabled(GameLog.Level.INFO)) {
+            GameLog.info(enemyName, " recibe ", amount, " de daño. HP: ", newHp);
+        }
         
         if (newHp <= 0) {
-            System.out.println("¡" + enemyName + " ha sido derrotado!");
+            GameLog.info("¡", enemyName, " ha sido derrotado!");
             return new Enemy(enemyName, attackPower, attacks, 0, false);
         }
         return new Enemy(enemyName, attackPower, attacks, newHp, true);
@@ -49,4 +51,9 @@ public final class Enemy {
     public int getAttackPower() {
         return attackPower;
     }
+
+    // Ataques que puede hacer en una batalla
+    public int getAttacks() {
+        return attacks;
+    }
 }
\ No newline at end of file
@@ -42,6 +42,9 @@ public class GameClient {
             }
     );
     
+    // Protocolo de salida del servidor: "text" (por defecto) o "binary", por argumento o -Darena.protocol
+    private static final String DEFAULT_PROTOCOL = System.getProperty("arena.protocol", "text");
+    
     // Comandos que ocultan el menú
     private static final Set<String> MENU_HIDING_COMMANDS = Set.of(
         "9", "HELP", "5", "WEAPONS", "3", "STATUS", "4", "PLAYERS"
@@ -50,18 +53,23 @@ public class GameClient {
     public static void main(String[] args) {
         String host = "localhost";
         int port = 5000;
+        boolean binary = (args.length > 0 ? args[0] : DEFAULT_PROTOCOL).equalsIgnoreCase("binary");
         
         System.out.println("Conectando al servidor " + host + ":" + port + "...");
         
         try (Socket socket = new Socket(host, port);
-             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
              PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
              Scanner sc = new Scanner(System.in)) {
             
             System.out.println("Conectado exitosamente!");
             
             // Hilo para recibir mensajes del servidor
-            startMessageReaderThread(in);
+            if (binary) {
+                out.println(WireProtocol.BINARY_REQUEST);
+                startBinaryReaderThread(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+            } else {
+                startMessageReaderThread(new BufferedReader(new InputStreamReader(socket.getInputStream())));
+            }
             
             // Obtener y enviar nombre del jugador
             getPlayerName(sc)
@@ -92,6 +100,31 @@ public class GameClient {
         readerThread.start();
     }
     
+    // Lee texto hasta la confirmación del servidor y después mensajes binarios; cada
+    // uno se traduce a sus líneas de texto para reutilizar los mismos procesadores
+    private static void startBinaryReaderThread(DataInputStream in) {
+        Thread readerThread = new Thread(() -> {
+            Map<Integer, String> templates = new HashMap<>();
+            try {
+                String line;
+                while ((line = WireProtocol.readLine(in)) != null && !line.equals(WireProtocol.BINARY_ACK)) {
+                    processServerMessage(line);
+                }
+                String message;
+                while (line != null && (message = WireProtocol.readFrame(in, templates)) != null) {
+                    message.lines().forEach(GameClient::processServerMessage);
+                    if (message.endsWith("\n")) {
+                        processServerMessage("");
+                    }
+                }
+            } catch (IOException ignored) {
+            }
+            
+            System.out.println("Desconectado del servidor");
+        });
+        readerThread.start();
+    }
+    
     private static Optional<String> getPlayerName(Scanner sc) {
         System.out.print("Ingresa tu nombre de jugador: ");
         return Optional.of(sc.nextLine())
@@ -0,0 +1,13 @@
+// GameCommand.java - Comandos que entiende el servidor, independientes de su escritura
+enum GameCommand {
+    // Batalla PVP
+    ATTACK_OPPONENT, SURRENDER,
+    // Acciones y consultas
+    ATTACK_ENEMY, HEAL, SHOW_STATS, STATUS, PLAYERS, RESET_ENEMIES, HELP,
+    // Ranking
+    LEADERBOARD, LEADERBOARD_BY, RANK, RANK_OF,
+    // Armas
+    WEAPON_MENU, EQUIP_WEAPON, WEAPON_BACK, SELECT_WEAPON,
+    // Desafíos
+    CHALLENGE, ACCEPT
+}
@@ -0,0 +1,186 @@
+// GameLog.java - Registro asíncrono: anillo sin bloqueos vaciado por un hilo escritor
+import java.io.PrintStream;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+final class GameLog {
+    enum Level { TRACE, DEBUG, INFO, WARN, ERROR, OFF }
+
+    // Nivel mínimo (-Darena.logLevel) y tamaño del anillo (-Darena.logBuffer, potencia de 2)
+    private static final Level LEVEL = Level.valueOf(System.getProperty("arena.logLevel", "INFO").toUpperCase());
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(64, Integer.getInteger("arena.logBuffer", 8192)));
+    // Comandos por segundo que se registran de cada jugador (-Darena.logCommandsPerSecond)
+    static final int COMMANDS_PER_SECOND = Integer.getInteger("arena.logCommandsPerSecond", 20);
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    // Anillo acotado de múltiples productores y un consumidor: cada casilla lleva su
+    // número de secuencia, así productores y escritor se coordinan solo con CAS
+    private static final Slot[] slots = new Slot[CAPACITY];
+    private static final AtomicLong tail = new AtomicLong();
+    private static final LongAdder dropped = new LongAdder();
+    private static long head = 0;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            slots[i] = new Slot(i);
+        }
+        if (LEVEL != Level.OFF) {
+            Thread writer = new Thread(GameLog::writeLoop, "game-log");
+            writer.setDaemon(true);
+            writer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(GameLog::drain, "game-log-flush"));
+        }
+    }
+
+    private GameLog() {}
+
+    // Camino desactivado: una comparación contra una constante y nada más
+    static boolean isEnabled(Level level) {
+        return level.compareTo(LEVEL) >= 0;
+    }
+
+    static void trace(Object a) { if (isEnabled(Level.TRACE)) publish(Level.TRACE, a, null, null, null); }
+    static void debug(Object a) { if (isEnabled(Level.DEBUG)) publish(Level.DEBUG, a, null, null, null); }
+    static void info(Object a) { if (isEnabled(Level.INFO)) publish(Level.INFO, a, null, null, null); }
+    static void warn(Object a) { if (isEnabled(Level.WARN)) publish(Level.WARN, a, null, null, null); }
+    static void error(Object a) { if (isEnabled(Level.ERROR)) publish(Level.ERROR, a, null, null, null); }
+
+    // Las partes se concatenan en el hilo escritor, no en el hilo que atiende al jugador.
+    // Los int se convierten a Integer antes de llegar aquí: en rutas calientes se
+    // comprueba isEnabled antes de llamar para no reservar nada con el nivel apagado
+    static void info(Object a, Object b) { if (isEnabled(Level.INFO)) publish(Level.INFO, a, b, null, null); }
+    static void info(Object a, Object b, Object c) { if (isEnabled(Level.INFO)) publish(Level.INFO, a, b, c, null); }
+    static void info(Object a, Object b, Object c, Object d) { if (isEnabled(Level.INFO)) publish(Level.INFO, a, b, c, d); }
+    static void info(Object a, Object b, Object c, Object d, Object e) { if (isEnabled(Level.INFO)) publish(Level.INFO, a, b, c, d, e, null, null); }
+    static void info(Object a, Object b, Object c, Object d, Object e, Object f) { if (isEnabled(Level.INFO)) publish(Level.INFO, a, b, c, d, e, f, null); }
+    static void info(Object a, Object b, Object c, Object d, Object e, Object f, Object g) { if (isEnabled(Level.INFO)) publish(Level.INFO, a, b, c, d, e, f, g); }
+    static void warn(Object a, Object b) { if (isEnabled(Level.WARN)) publish(Level.WARN, a, b, null, null); }
+    static void error(Object a, Object b) { if (isEnabled(Level.ERROR)) publish(Level.ERROR, a, b, null, null); }
+    static void error(Object a, Object b, Object c, Object d) { if (isEnabled(Level.ERROR)) publish(Level.ERROR, a, b, c, d); }
+
+    static long droppedCount() {
+        return dropped.sum();
+    }
+
+    private static void publish(Level level, Object a, Object b, Object c, Object d) {
+        publish(level, a, b, c, d, null, null, null);
+    }
+
+    // Si el anillo está lleno el registro se descarta: nunca se bloquea al productor
+    private static void publish(Level level, Object a, Object b, Object c, Object d, Object e, Object f, Object g) {
+        long position = tail.get();
+        Slot slot;
+        while (true) {
+            slot = slots[(int) (position & (CAPACITY - 1))];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (difference < 0) {
+                dropped.increment();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+
+        slot.level = level;
+        slot.timeMillis = System.currentTimeMillis();
+        slot.a = a;
+        slot.b = b;
+        slot.c = c;
+        slot.d = d;
+        slot.e = e;
+        slot.f = f;
+        slot.g = g;
+        slot.sequence = position + 1;
+    }
+
+    private static void writeLoop() {
+        while (true) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(1_000_000L);
+            }
+        }
+    }
+
+    // Único consumidor (el escritor o el gancho de cierre, nunca a la vez en la práctica)
+    private static synchronized int drain() {
+        int written = 0;
+        long lastDropped = 0;
+        while (true) {
+            Slot slot = slots[(int) (head & (CAPACITY - 1))];
+            if (slot.sequence != head + 1) break;
+
+            PrintStream out = slot.level.compareTo(Level.WARN) >= 0 ? System.err : System.out;
+            out.println(format(slot));
+
+            slot.a = slot.b = slot.c = slot.d = slot.e = slot.f = slot.g = null;
+            slot.sequence = head + CAPACITY;
+            head++;
+            written++;
+        }
+        if (written > 0) {
+            System.out.flush();
+        }
+        return written;
+    }
+
+    private static String format(Slot slot) {
+        StringBuilder line = new StringBuilder(96)
+            .append(TIME.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(slot.timeMillis), ZoneId.systemDefault())))
+            .append(' ').append(slot.level).append(' ')
+            .append(slot.a);
+        if (slot.b != null) line.append(slot.b);
+        if (slot.c != null) line.append(slot.c);
+        if (slot.d != null) line.append(slot.d);
+        if (slot.e != null) line.append(slot.e);
+        if (slot.f != null) line.append(slot.f);
+        if (slot.g != null) line.append(slot.g);
+        return line.toString();
+    }
+
+    private static final class Slot {
+        private volatile long sequence;
+        private Level level;
+        private long timeMillis;
+        private Object a, b, c, d, e, f, g;
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    // Limitador por jugador para el rastreo de comandos; lo usa solo el hilo de su sesión
+    static final class RateLimit {
+        private final int perSecond;
+        private long windowStart = 0;
+        private int count = 0;
+        private int suppressed = 0;
+
+        RateLimit(int perSecond) {
+            this.perSecond = perSecond;
+        }
+
+        // Devuelve cuántos registros se omitieron en la ventana anterior, o -1 si hay que omitir este
+        int tryAcquire() {
+            long now = System.nanoTime();
+            if (now - windowStart >= 1_000_000_000L) {
+                int previous = suppressed;
+                windowStart = now;
+                count = 1;
+                suppressed = 0;
+                return previous;
+            }
+            if (count < perSecond) {
+                count++;
+                return 0;
+            }
+            suppressed++;
+            return -1;
+        }
+    }
+}
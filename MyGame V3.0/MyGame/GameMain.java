@@ -15,6 +15,15 @@ public class GameMain {
         );
     }
     
+    // Grupo de enemigos de la batalla local; también lo usa BattleSimulator
+    static List<Enemy> crearEnemigos() {
+        return Arrays.asList(
+            new Enemy("Orco Salvaje", 15, 5),
+            new Enemy("Esqueleto Guerrero", 10, 7),
+            new Enemy("Gólem de Piedra", 12, 6)
+        );
+    }
+    
     // Función pura para crear un jugador
     private static Optional<Player> crearJugador(String nombre, List<Weapons> armas, int indiceArma) {
         return Optional.of(indiceArma)
@@ -116,11 +125,7 @@ public class GameMain {
             .collect(Collectors.toList());
         
         // Crear enemigos de forma funcional
-        List<Enemy> enemigos = Arrays.asList(
-            new Enemy("Orco Salvaje", 15, 5),
-            new Enemy("Esqueleto Guerrero", 10, 7),
-            new Enemy("Gólem de Piedra", 12, 6)
-        );
+        List<Enemy> enemigos = crearEnemigos();
         
         System.out.println("\n=== COMIENZA LA BATALLA ===");
         
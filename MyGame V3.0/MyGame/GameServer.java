@@ -1,37 +1,137 @@
 // GameServer.java - VERSIÓN SIMPLIFICADA Y FUNCIONAL
 import java.io.*;
 import java.net.*;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
 
 public class GameServer {
     private static final int PORT = 5000;
-    private static final CopyOnWriteArrayList<ClientHandler> players = new CopyOnWriteArrayList<>();
+    
+    // Modo de E/S: "blocking" (una tarea por jugador), "virtual" (bloqueante sobre hilos
+    // virtuales) o "nio" (selectores), por argumento o -Darena.mode
+    private static final String DEFAULT_MODE = System.getProperty("arena.mode", "blocking");
+    // Ejecutor de sesiones del modo bloqueante: "thread", "virtual", "pool" o "pool:N"
+    private static final String DEFAULT_EXECUTOR = System.getProperty("arena.executor", "thread");
+    // Carpeta del registro persistente de batallas (-Darena.matchLogDir, vacío = desactivado)
+    private static final String MATCH_LOG_DIR = System.getProperty("arena.matchLogDir", "data/matches");
+    // Carpeta de las estadísticas globales de jugadores (-Darena.playerStatsDir, vacío = solo en memoria)
+    private static final String PLAYER_STATS_DIR = System.getProperty("arena.playerStatsDir", "data/players");
+    // Días de batallas que se guardan completas en memoria (-Darena.historyRetentionDays,
+    // 0 = todas); las anteriores quedan resumidas por día, jugador y arma
+    private static final int HISTORY_RETENTION_DAYS = Integer.getInteger("arena.historyRetentionDays", 30);
+    private static final int DEFAULT_IO_THREADS = Integer.getInteger("arena.ioThreads",
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    // Espera máxima al apagar para que las sesiones terminen de desconectarse
+    private static final long SHUTDOWN_GRACE_MS = 5_000;
+
+    // Registros que se cierran al apagar, en este orden, cuando ya no quedan sesiones
+    private static final List<Runnable> closeOnShutdown = new CopyOnWriteArrayList<>();
     
     public static void main(String[] args) {
-        System.out.println("=== SERVIDOR DE JUEGO INICIADO ===");
-        System.out.println("Esperando conexiones en puerto " + PORT + "...\n");
+        String mode = args.length > 0 ? args[0] : DEFAULT_MODE;
         
+        GameLog.info("=== SERVIDOR DE JUEGO INICIADO ===");
+        GameLog.info("Esperando conexiones en puerto ", PORT, "...");
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(GameServer::shutdown, "server-shutdown"));
+        try {
+            openPlayerStats();
+            startHistoryRetention();
+            openMatchJournal();
+            AdminServer.startIfConfigured(ClientHandler.statsFollower());
+            if (mode.equalsIgnoreCase("nio")) {
+                int ioThreads = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_IO_THREADS;
+                GameLog.info("Modo NIO con ", ioThreads, " bucles de E/S");
+                new NioGameServer(PORT, ioThreads, GameServer::registerPlayer).run();
+            } else {
+                String executor = mode.equalsIgnoreCase("virtual") ? "virtual"
+                    : args.length > 1 ? args[1] : DEFAULT_EXECUTOR;
+                GameLog.info("Modo bloqueante con ejecutor de sesiones: ", executor);
+                runBlocking(SessionExecutors.forName(executor));
+            }
+        } catch (IOException e) {
+            GameLog.error("Error en el servidor: ", e.getMessage());
+        }
+    }
+    
+    private static void openPlayerStats() throws IOException {
+        if (PLAYER_STATS_DIR.isEmpty()) return;
+        
+        long start = System.nanoTime();
+        StatsWriteBehind stats = ClientHandler.openPlayerStats(Path.of(PLAYER_STATS_DIR));
+        closeOnShutdown.add(0, stats::close);
+        GameLog.info("Estadísticas de jugadores restauradas: ", ClientHandler.getRankedPlayerCount(),
+            " jugadores en " + (System.nanoTime() - start) / 1_000_000, " ms");
+    }
+    
+    private static void openMatchJournal() throws IOException {
+        if (MATCH_LOG_DIR.isEmpty()) return;
+        
+        long start = System.nanoTime();
+        MatchJournal journal = ClientHandler.openMatchJournal(Path.of(MATCH_LOG_DIR));
+        closeOnShutdown.add(0, journal::close);
+        GameLog.info("Historial restaurado: ", ClientHandler.getRecordedMatchCount(),
+            " batallas en " + (System.nanoTime() - start) / 1_000_000, " ms");
+    }
+
+    // Primero terminan las sesiones, así sus estadísticas y batallas llegan a los registros;
+    // después se cierran los registros, el último abierto primero
+    private static void shutdown() {
+        int sessions = ClientHandler.getConnectedCount();
+        if (sessions > 0) {
+            GameLog.info("Apagando: cerrando ", sessions, " sesiones");
+            try {
+                if (!ClientHandler.stopAll(SHUTDOWN_GRACE_MS)) {
+                    GameLog.warn("Apagando sin esperar a todas las sesiones");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeOnShutdown.forEach(Runnable::run);
+    }
+
+    // Antes de reproducir el registro: lo vencido se resume mientras se lee. Después,
+    // cada diez minutos se revisa qué batallas pasaron la retención
+    private static void startHistoryRetention() {
+        if (HISTORY_RETENTION_DAYS <= 0) return;
+
+        ClientHandler.retainMatchesFor(Duration.ofDays(HISTORY_RETENTION_DAYS));
+        ScheduledExecutorService retention = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "history-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        retention.scheduleWithFixedDelay(() -> {
+            int evicted = ClientHandler.evictExpiredMatches();
+            if (evicted > 0) {
+                GameLog.info("Batallas de más de ", HISTORY_RETENTION_DAYS, " días resumidas: ", evicted);
+            }
+        }, 10, 10, TimeUnit.MINUTES);
+    }
+    
+    // Modo clásico: cada conexión es una tarea bloqueante en el ejecutor elegido
+    private static void runBlocking(Executor sessionExecutor) throws IOException {
         try (ServerSocket serverSocket = new ServerSocket(PORT)) {
             while (true) {
                 Socket clientSocket = serverSocket.accept();
-                System.out.println("Nuevo cliente conectado desde: " + 
-                    clientSocket.getRemoteSocketAddress());
+                GameLog.info("Nuevo cliente conectado desde: ", clientSocket.getRemoteSocketAddress());
                 
-                // Assuming you have an Enemy list, create or obtain it here
-                List<Enemy> enemies = new ArrayList<>(); // Replace with your actual enemy list if needed
                 ClientHandler clientHandler = new ClientHandler(clientSocket);
-                players.add(clientHandler);
-                clientHandler.start();
-                
-                System.out.println("Total de jugadores conectados: " + players.size());
+                registerPlayer(clientHandler);
+                sessionExecutor.execute(clientHandler);
             }
-        } catch (IOException e) {
-            System.err.println("Error en el servidor: " + e.getMessage());
         }
     }
     
+    // El handler ya se registró en el directorio de jugadores al construirse
+    private static void registerPlayer(ClientHandler clientHandler) {
+        GameLog.info("Total de jugadores conectados: ", ClientHandler.getConnectedCount());
+    }
+    
     public static List<ClientHandler> getPlayers() {
-        return new ArrayList<>(players);
+        return ClientHandler.getConnectedPlayers();
     }
-}
\ No newline at end of file
+}
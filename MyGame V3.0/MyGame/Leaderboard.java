@@ -0,0 +1,225 @@
+// Leaderboard.java - Ranking ordenado con posición en O(log n) y top N pre-renderizado
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+final class Leaderboard {
+    static final int TOP_N = 10;
+
+    // Criterios de orden; a igualdad decide el nombre para que el orden sea total
+    enum Ordering {
+        KD(Comparator.comparingDouble(Entry::kd).reversed()
+            .thenComparing(Comparator.comparingInt(Entry::kills).reversed())),
+        KILLS(Comparator.comparingInt(Entry::kills).reversed()
+            .thenComparing(Comparator.comparingDouble(Entry::kd).reversed())),
+        DAMAGE(Comparator.comparingInt(Entry::damage).reversed());
+
+        private final Comparator<Entry> order;
+
+        Ordering(Comparator<Entry> order) {
+            this.order = order.thenComparing(Entry::name);
+        }
+    }
+
+    // Valores de un jugador en el momento de su última actualización
+    record Entry(String name, int kills, int deaths, int damage) {
+        double kd() {
+            return deaths > 0 ? (double) kills / deaths : kills;
+        }
+    }
+
+    private final Map<String, Entry> current = new HashMap<>();
+    private final EnumMap<Ordering, RankedTree> indexes = new EnumMap<>(Ordering.class);
+    // Top N ya renderizado por criterio; se descarta solo si el top N cambia
+    private final EnumMap<Ordering, String> rendered = new EnumMap<>(Ordering.class);
+    private final EnumMap<Ordering, Long> versions = new EnumMap<>(Ordering.class);
+
+    Leaderboard() {
+        for (Ordering ordering : Ordering.values()) {
+            indexes.put(ordering, new RankedTree(ordering.order));
+            versions.put(ordering, 0L);
+        }
+    }
+
+    // O(log n) por criterio
+    synchronized void update(String name, int kills, int deaths, int damage) {
+        Entry next = new Entry(name, kills, deaths, damage);
+        Entry previous = current.put(name, next);
+        if (next.equals(previous)) return;
+
+        indexes.forEach((ordering, index) -> {
+            boolean wasOnTop = false;
+            if (previous != null) {
+                wasOnTop = index.rank(previous) < TOP_N;
+                index.remove(previous);
+            }
+            index.insert(next);
+            if (wasOnTop || index.rank(next) < TOP_N) {
+                rendered.remove(ordering);
+                versions.merge(ordering, 1L, Long::sum);
+            }
+        });
+    }
+
+    // Posición (desde 1) del jugador en el criterio dado
+    synchronized OptionalInt rankOf(String name, Ordering ordering) {
+        Entry entry = current.get(name);
+        return entry == null ? OptionalInt.empty() : OptionalInt.of(indexes.get(ordering).rank(entry) + 1);
+    }
+
+    synchronized int size() {
+        return current.size();
+    }
+
+    // Repetir LEADERBOARD sin cambios en el top N no ordena ni formatea nada
+    String render(Ordering ordering) {
+        List<Entry> top;
+        long version;
+        synchronized (this) {
+            String cached = rendered.get(ordering);
+            if (cached != null) return cached;
+            top = indexes.get(ordering).first(TOP_N);
+            version = versions.get(ordering);
+        }
+
+        StringBuilder text = new StringBuilder();
+        text.append(ordering == Ordering.KD
+            ? "=== LEADERBOARD GLOBAL ===\n"
+            : "=== LEADERBOARD GLOBAL (" + ordering + ") ===\n");
+        top.forEach(entry -> text
+            .append(PlayerStats.formatLine(entry.name(), entry.kills(), entry.deaths(), entry.kd(), entry.damage()))
+            .append("\n"));
+        text.append("==========================");
+        String result = text.toString();
+
+        synchronized (this) {
+            if (versions.get(ordering) == version) {
+                rendered.put(ordering, result);
+            }
+        }
+        return result;
+    }
+
+    // Treap con tamaño de subárbol: inserción, borrado y posición en O(log n) esperado
+    private static final class RankedTree {
+        private static final class Node {
+            final Entry entry;
+            final int priority = ThreadLocalRandom.current().nextInt();
+            int size = 1;
+            Node left, right;
+
+            Node(Entry entry) {
+                this.entry = entry;
+            }
+        }
+
+        private final Comparator<Entry> order;
+        private Node root;
+
+        RankedTree(Comparator<Entry> order) {
+            this.order = order;
+        }
+
+        void insert(Entry entry) {
+            root = insert(root, new Node(entry));
+        }
+
+        void remove(Entry entry) {
+            root = remove(root, entry);
+        }
+
+        // Cantidad de entradas que van antes que esta
+        int rank(Entry entry) {
+            int rank = 0;
+            Node node = root;
+            while (node != null) {
+                int c = order.compare(entry, node.entry);
+                if (c <= 0) {
+                    if (c == 0) return rank + size(node.left);
+                    node = node.left;
+                } else {
+                    rank += size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            return rank;
+        }
+
+        List<Entry> first(int limit) {
+            List<Entry> result = new ArrayList<>(limit);
+            collect(root, result, limit);
+            return result;
+        }
+
+        private void collect(Node node, List<Entry> out, int limit) {
+            if (node == null || out.size() == limit) return;
+            collect(node.left, out, limit);
+            if (out.size() < limit) {
+                out.add(node.entry);
+            }
+            collect(node.right, out, limit);
+        }
+
+        private Node insert(Node node, Node added) {
+            if (node == null) return added;
+            if (added.priority > node.priority) {
+                Node[] parts = split(node, added.entry);
+                added.left = parts[0];
+                added.right = parts[1];
+                return resize(added);
+            }
+            if (order.compare(added.entry, node.entry) < 0) {
+                node.left = insert(node.left, added);
+            } else {
+                node.right = insert(node.right, added);
+            }
+            return resize(node);
+        }
+
+        private Node remove(Node node, Entry entry) {
+            if (node == null) return null;
+            int c = order.compare(entry, node.entry);
+            if (c == 0) return merge(node.left, node.right);
+            if (c < 0) {
+                node.left = remove(node.left, entry);
+            } else {
+                node.right = remove(node.right, entry);
+            }
+            return resize(node);
+        }
+
+        // Separa en (< entry) y (>= entry)
+        private Node[] split(Node node, Entry entry) {
+            if (node == null) return new Node[2];
+            if (order.compare(node.entry, entry) < 0) {
+                Node[] parts = split(node.right, entry);
+                node.right = parts[0];
+                parts[0] = resize(node);
+                return parts;
+            }
+            Node[] parts = split(node.left, entry);
+            node.left = parts[1];
+            parts[1] = resize(node);
+            return parts;
+        }
+
+        private Node merge(Node left, Node right) {
+            if (left == null) return right;
+            if (right == null) return left;
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                return resize(left);
+            }
+            right.left = merge(left, right.left);
+            return resize(right);
+        }
+
+        private static int size(Node node) {
+            return node == null ? 0 : node.size;
+        }
+
+        private static Node resize(Node node) {
+            node.size = 1 + size(node.left) + size(node.right);
+            return node;
+        }
+    }
+}
@@ -0,0 +1,546 @@
+// MatchArchive.java - Exportación e importación del historial de batallas por bloques comprimidos y en CSV
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.zip.*;
+
+// Formato binario: [magia "ARNA"][versión u8] y luego bloques independientes
+//   [filas int][bytes sin comprimir int][bytes comprimidos int][crc int][datos Deflate]
+// terminados por un bloque de 0 filas. Cada bloque trae su propia tabla de nombres y
+// sus columnas una tras otra (ids, daños, duraciones, fechas como diferencias, rendiciones
+// como bits), así se descomprime sin mirar los demás.
+//
+// Tanto la exportación como la importación tienen en memoria unos pocos bloques a la vez:
+// al exportar desde el registro se lee un bloque de batallas, se escribe y se descarta;
+// al importar, el hilo que lee el archivo deja la descompresión y el agregado de cada
+// bloque al pool de fork/join y los entrega a StatsProcessor en el orden del archivo
+final class MatchArchive {
+    private static final int MAGIC = 0x41524E41;
+    private static final byte VERSION = 1;
+    private static final int BLOCK_ROWS = Integer.getInteger("arena.archiveBlockRows", 16 * 1024);
+    // Límites al leer: un archivo dañado no debe pedir memoria sin control
+    private static final int MAX_BLOCK_ROWS = 1 << 20;
+    private static final int MAX_BLOCK_BYTES = 64 << 20;
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+
+    private static final String CSV_HEADER =
+        "winner,loser,winner_weapon,loser_weapon,winner_damage,loser_damage,duration_ms,timestamp,surrender";
+    private static final DateTimeFormatter CSV_TIME = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private MatchArchive() {
+    }
+
+    // Destino de una exportación: recibe las filas en tramos, en orden
+    private interface RowSink {
+        void write(MatchStore.View columns, int from, int to) throws IOException;
+    }
+
+    // Reproduce el registro en modo lectura y entrega las batallas en tramos de BLOCK_ROWS;
+    // cada tramo se descarta después de escribirlo. Devuelve cuántas batallas se entregaron
+    private static long exportJournal(Path journalDir, RowSink sink) throws IOException {
+        JournalBlocks blocks = new JournalBlocks(sink);
+        try {
+            MatchJournal.replay(journalDir, blocks);
+            blocks.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return blocks.delivered;
+    }
+
+    private static final class JournalBlocks implements Consumer<MatchResult> {
+        private final RowSink sink;
+        private MatchStore block = new MatchStore();
+        private long delivered = 0;
+
+        JournalBlocks(RowSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void accept(MatchResult result) {
+            if (block.append(result) + 1 == BLOCK_ROWS) {
+                flush();
+            }
+        }
+
+        void flush() {
+            MatchStore.View columns = block.snapshot();
+            if (columns.size() == 0) return;
+            try {
+                sink.write(columns, 0, columns.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            delivered += columns.size();
+            block = new MatchStore();
+        }
+    }
+
+    // === FORMATO BINARIO ===
+
+    // Exporta las filas retenidas de la vista; devuelve cuántas batallas se escribieron
+    static int export(MatchStore.View columns, OutputStream target) throws IOException {
+        BlockWriter out = new BlockWriter(target);
+        try {
+            for (int from = columns.first(); from < columns.size(); from += BLOCK_ROWS) {
+                out.write(columns, from, Math.min(columns.size(), from + BLOCK_ROWS));
+            }
+            out.finish();
+        } finally {
+            out.end();
+        }
+        return columns.size() - columns.first();
+    }
+
+    // Escribe el encabezado al crearse, un bloque comprimido por llamada a write y el
+    // bloque final de 0 filas en finish(); end() libera el Deflater
+    private static final class BlockWriter implements RowSink {
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32 crc = new CRC32();
+        private byte[] compressed = new byte[1 << 16];
+
+        BlockWriter(OutputStream target) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(target, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+        }
+
+        @Override
+        public void write(MatchStore.View columns, int from, int to) throws IOException {
+            byte[] raw = encodeBlock(columns, from, to);
+
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            crc.reset();
+            crc.update(compressed, 0, length);
+
+            out.writeInt(to - from);
+            out.writeInt(raw.length);
+            out.writeInt(length);
+            out.writeInt((int) crc.getValue());
+            out.write(compressed, 0, length);
+        }
+
+        void finish() throws IOException {
+            out.writeInt(0);
+            out.flush();
+        }
+
+        void end() {
+            deflater.end();
+        }
+    }
+
+    // Los ids del historial se renumeran por bloque en el orden en que aparecen
+    private static byte[] encodeBlock(MatchStore.View columns, int from, int to) throws IOException {
+        int rows = to - from;
+        Map<Integer, Integer> local = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        int[][] ids = new int[4][rows];
+        for (int row = from; row < to; row++) {
+            int[] source = {columns.winnerId(row), columns.loserId(row),
+                columns.winnerWeaponId(row), columns.loserWeaponId(row)};
+            for (int column = 0; column < 4; column++) {
+                ids[column][row - from] = local.computeIfAbsent(source[column], id -> {
+                    table.add(columns.name(id));
+                    return table.size() - 1;
+                });
+            }
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(rows * 40 + table.size() * 16);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(table.size());
+        for (String name : table) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            int length = nameLength(bytes);
+            out.writeShort(length);
+            out.write(bytes, 0, length);
+        }
+        for (int[] column : ids) {
+            for (int id : column) out.writeInt(id);
+        }
+        for (int row = from; row < to; row++) out.writeInt(columns.winnerDamage(row));
+        for (int row = from; row < to; row++) out.writeInt(columns.loserDamage(row));
+        for (int row = from; row < to; row++) out.writeLong(columns.durationMs(row));
+        // Fechas casi ordenadas: las diferencias son pequeñas y se comprimen mucho mejor
+        long previous = 0;
+        for (int row = from; row < to; row++) {
+            long millis = columns.timestampMillis(row);
+            out.writeLong(millis - previous);
+            previous = millis;
+        }
+        byte[] surrenders = new byte[(rows + 7) / 8];
+        for (int row = from; row < to; row++) {
+            if (columns.surrender(row)) {
+                surrenders[(row - from) >>> 3] |= (byte) (1 << ((row - from) & 7));
+            }
+        }
+        out.write(surrenders);
+        return buffer.toByteArray();
+    }
+
+    // Bytes del nombre que caben en el campo u16, sin partir un carácter: si el corte cae en
+    // un byte de continuación (10xxxxxx), se retrocede hasta el inicio de ese carácter
+    private static int nameLength(byte[] bytes) {
+        if (bytes.length <= MAX_NAME_BYTES) return bytes.length;
+        int length = MAX_NAME_BYTES;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return length;
+    }
+
+    // Bloque tal como está en el archivo, todavía comprimido
+    private record RawBlock(int rows, int rawBytes, int crc, byte[] compressed) {
+    }
+
+    // Bloque listo para entregar: sus filas en columnas y su agregado parcial
+    private record DecodedBlock(MatchStore.View columns, StatsAggregate partial) {
+    }
+
+    // Devuelve cuántas batallas se importaron
+    static long importInto(InputStream source, StatsProcessor target) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source, 1 << 16));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("No es un archivo de historial de batallas");
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        // Bloques en vuelo: suficientes para ocupar el pool, pocos para acotar la memoria
+        int window = Math.max(2, pool.getParallelism() * 2);
+        Deque<ForkJoinTask<DecodedBlock>> inFlight = new ArrayDeque<>();
+        long imported = 0;
+        try {
+            RawBlock raw;
+            while ((raw = readBlock(in)) != null) {
+                if (inFlight.size() == window) {
+                    imported += deliver(inFlight.poll(), target);
+                }
+                RawBlock block = raw;
+                inFlight.add(pool.submit(() -> decode(block)));
+            }
+            while (!inFlight.isEmpty()) {
+                imported += deliver(inFlight.poll(), target);
+            }
+        } finally {
+            inFlight.forEach(task -> task.cancel(false));
+        }
+        return imported;
+    }
+
+    private static RawBlock readBlock(DataInputStream in) throws IOException {
+        try {
+            int rows = in.readInt();
+            if (rows == 0) return null;
+            int rawBytes = in.readInt();
+            int compressedBytes = in.readInt();
+            int crc = in.readInt();
+            if (rows < 0 || rows > MAX_BLOCK_ROWS || rawBytes < 0 || rawBytes > MAX_BLOCK_BYTES
+                    || compressedBytes < 0 || compressedBytes > MAX_BLOCK_BYTES) {
+                throw new IOException("Encabezado de bloque inválido (" + rows + " filas)");
+            }
+            byte[] compressed = new byte[compressedBytes];
+            in.readFully(compressed);
+            return new RawBlock(rows, rawBytes, crc, compressed);
+        } catch (EOFException e) {
+            throw new IOException("Archivo de historial truncado", e);
+        }
+    }
+
+    private static int deliver(ForkJoinTask<DecodedBlock> task, StatsProcessor target) throws IOException {
+        DecodedBlock block;
+        try {
+            block = task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        target.importBlock(block.columns(), block.partial());
+        return block.columns().size();
+    }
+
+    // Corre en el pool: verifica, descomprime, arma las columnas y acumula el bloque
+    private static DecodedBlock decode(RawBlock block) {
+        CRC32 crc = new CRC32();
+        crc.update(block.compressed());
+        if ((int) crc.getValue() != block.crc()) {
+            throw new UncheckedIOException(new IOException("Bloque dañado: el CRC no coincide"));
+        }
+
+        byte[] raw = new byte[block.rawBytes()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block.compressed());
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int read = inflater.inflate(raw, length, raw.length - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += read;
+            }
+            if (length != raw.length) {
+                throw new UncheckedIOException(new IOException("Bloque dañado: tamaño descomprimido inesperado"));
+            }
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Bloque dañado: " + e.getMessage()));
+        } finally {
+            inflater.end();
+        }
+
+        MatchStore store;
+        try {
+            store = decodeColumns(ByteBuffer.wrap(raw), block.rows());
+        } catch (RuntimeException e) {
+            throw new UncheckedIOException(new IOException("Bloque dañado: " + e));
+        }
+        MatchStore.View columns = store.snapshot();
+        StatsAggregate partial = new StatsAggregate();
+        partial.addRows(columns, 0, columns.size());
+        return new DecodedBlock(columns, partial);
+    }
+
+    private static MatchStore decodeColumns(ByteBuffer data, int rows) {
+        String[] table = new String[data.getInt()];
+        for (int i = 0; i < table.length; i++) {
+            byte[] bytes = new byte[Short.toUnsignedInt(data.getShort())];
+            data.get(bytes);
+            table[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        int idsAt = data.position();
+        int damageAt = idsAt + 4 * 4 * rows;
+        int durationAt = damageAt + 2 * 4 * rows;
+        int timestampAt = durationAt + 8 * rows;
+        int surrenderAt = timestampAt + 8 * rows;
+        if (surrenderAt + (rows + 7) / 8 != data.limit()) {
+            throw new IllegalStateException("columnas de tamaño inesperado");
+        }
+
+        MatchStore store = new MatchStore();
+        long millis = 0;
+        for (int row = 0; row < rows; row++) {
+            millis += data.getLong(timestampAt + 8 * row);
+            store.append(table[data.getInt(idsAt + 4 * row)],
+                table[data.getInt(idsAt + 4 * (rows + row))],
+                table[data.getInt(idsAt + 4 * (2 * rows + row))],
+                table[data.getInt(idsAt + 4 * (3 * rows + row))],
+                data.getInt(damageAt + 4 * row), data.getInt(damageAt + 4 * (rows + row)),
+                data.getLong(durationAt + 8 * row), millis,
+                (data.get(surrenderAt + (row >>> 3)) & (1 << (row & 7))) != 0);
+        }
+        return store;
+    }
+
+    // === CSV ===
+    // Una batalla por línea con encabezado; los nombres con comas, comillas o saltos de
+    // línea van entre comillas. Las fechas son hora local en ISO-8601
+
+    static int exportCsv(MatchStore.View columns, Writer target) throws IOException {
+        BufferedWriter out = csvWriter(target);
+        writeCsvRows(out, columns, columns.first(), columns.size());
+        out.flush();
+        return columns.size() - columns.first();
+    }
+
+    // Con el encabezado ya escrito
+    private static BufferedWriter csvWriter(Writer target) throws IOException {
+        BufferedWriter out = new BufferedWriter(target, 1 << 16);
+        out.write(CSV_HEADER);
+        out.newLine();
+        return out;
+    }
+
+    private static void writeCsvRows(BufferedWriter out, MatchStore.View columns, int from, int to) throws IOException {
+        for (int row = from; row < to; row++) {
+            out.write(csvField(columns.name(columns.winnerId(row))));
+            out.write(',');
+            out.write(csvField(columns.name(columns.loserId(row))));
+            out.write(',');
+            out.write(csvField(columns.name(columns.winnerWeaponId(row))));
+            out.write(',');
+            out.write(csvField(columns.name(columns.loserWeaponId(row))));
+            out.write(',');
+            out.write(Integer.toString(columns.winnerDamage(row)));
+            out.write(',');
+            out.write(Integer.toString(columns.loserDamage(row)));
+            out.write(',');
+            out.write(Long.toString(columns.durationMs(row)));
+            out.write(',');
+            out.write(CSV_TIME.format(LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(columns.timestampMillis(row)), ZoneId.systemDefault())));
+            out.write(',');
+            out.write(columns.surrender(row) ? "true" : "false");
+            out.newLine();
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // Se lee de forma secuencial y se entrega por bloques de BLOCK_ROWS filas
+    static long importCsv(Reader source, StatsProcessor target) throws IOException {
+        BufferedReader in = new BufferedReader(source, 1 << 16);
+        List<String> fields = new ArrayList<>(9);
+        if (!readRecord(in, fields) || !String.join(",", fields).equals(CSV_HEADER)) {
+            throw new IOException("Encabezado CSV inesperado, se esperaba: " + CSV_HEADER);
+        }
+
+        long imported = 0;
+        long line = 1;
+        MatchStore block = new MatchStore();
+        while (readRecord(in, fields)) {
+            line++;
+            if (fields.size() == 1 && fields.get(0).isEmpty()) continue;
+            if (fields.size() != 9) {
+                throw new IOException("Línea " + line + ": se esperaban 9 campos y hay " + fields.size());
+            }
+            try {
+                block.append(fields.get(0), fields.get(1), fields.get(2), fields.get(3),
+                    Integer.parseInt(fields.get(4)), Integer.parseInt(fields.get(5)),
+                    Long.parseLong(fields.get(6)),
+                    LocalDateTime.parse(fields.get(7), CSV_TIME)
+                        .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                    Boolean.parseBoolean(fields.get(8)));
+            } catch (RuntimeException e) {
+                throw new IOException("Línea " + line + ": " + e.getMessage(), e);
+            }
+            if (block.size() == BLOCK_ROWS) {
+                imported += deliver(block, target);
+                block = new MatchStore();
+            }
+        }
+        if (block.size() > 0) {
+            imported += deliver(block, target);
+        }
+        return imported;
+    }
+
+    private static int deliver(MatchStore block, StatsProcessor target) {
+        MatchStore.View columns = block.snapshot();
+        StatsAggregate partial = new StatsAggregate();
+        partial.addRows(columns, 0, columns.size());
+        target.importBlock(columns, partial);
+        return columns.size();
+    }
+
+    // Lee un registro CSV (puede ocupar varias líneas si hay comillas); false al final
+    private static boolean readRecord(BufferedReader in, List<String> fields) throws IOException {
+        fields.clear();
+        int c = in.read();
+        if (c < 0) return false;
+
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) throw new IOException("Comillas sin cerrar al final del CSV");
+                if (c == '"') {
+                    in.mark(1);
+                    if (in.read() == '"') {
+                        field.append('"');
+                    } else {
+                        in.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c < 0) {
+                break;
+            } else if (c == '\r') {
+                in.mark(1);
+                if (in.read() != '\n') in.reset();
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = in.read();
+        }
+        fields.add(field.toString());
+        return true;
+    }
+
+    // === LÍNEA DE COMANDOS ===
+
+    // Uso: java MatchArchive export <directorio del registro> <archivo.arna|archivo.csv>
+    //      java MatchArchive report <archivo.arna|archivo.csv>
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("export")) {
+            Path journalDir = Path.of(args[1]);
+            if (!Files.isDirectory(journalDir)) {
+                throw new NoSuchFileException(journalDir.toString());
+            }
+            Path file = Path.of(args[2]);
+            long start = System.nanoTime();
+            long written;
+            if (isCsv(file)) {
+                try (Writer target = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    BufferedWriter out = csvWriter(target);
+                    written = exportJournal(journalDir, (columns, from, to) -> writeCsvRows(out, columns, from, to));
+                    out.flush();
+                }
+            } else {
+                try (OutputStream target = Files.newOutputStream(file)) {
+                    BlockWriter out = new BlockWriter(target);
+                    try {
+                        written = exportJournal(journalDir, out);
+                        out.finish();
+                    } finally {
+                        out.end();
+                    }
+                }
+            }
+            System.out.printf("%d batallas exportadas a %s (%d bytes) en %d ms%n",
+                written, file, Files.size(file), (System.nanoTime() - start) / 1_000_000);
+        } else if (args.length == 2 && args[0].equals("report")) {
+            Path file = Path.of(args[1]);
+            StatsProcessor stats = new StatsProcessor();
+            long start = System.nanoTime();
+            long read;
+            if (isCsv(file)) {
+                try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    read = importCsv(in, stats);
+                }
+            } else {
+                try (InputStream in = Files.newInputStream(file)) {
+                    read = importInto(in, stats);
+                }
+            }
+            System.out.printf("%d batallas importadas de %s en %d ms%n",
+                read, file, (System.nanoTime() - start) / 1_000_000);
+            stats.generateFullReport();
+        } else {
+            System.err.println("Uso: java MatchArchive export <directorio del registro> <archivo.arna|archivo.csv>");
+            System.err.println("     java MatchArchive report <archivo.arna|archivo.csv>");
+            System.exit(2);
+        }
+    }
+
+    private static boolean isCsv(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".csv");
+    }
+}
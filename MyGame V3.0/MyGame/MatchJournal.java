@@ -0,0 +1,251 @@
+// MatchJournal.java - Registro binario persistente de batallas en segmentos mapeados en memoria
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.*;
+import java.util.zip.CRC32;
+
+// Cada segmento es una secuencia de registros terminada en ceros:
+//   STRING: [1][id int][longitud u16][UTF-8][crc int]  (nombres de jugador y de arma)
+//   MATCH:  [2][ganador][perdedor][arma ganador][arma perdedor] (ids de STRING)
+//           [daño ganador int][daño perdedor int][duración long][fecha long][rendición u8][crc int]
+// Las tablas de nombres son propias de cada segmento, así cada uno se lee por sí solo
+final class MatchJournal implements Closeable {
+    static final int SEGMENT_BYTES = Integer.getInteger("arena.matchSegmentBytes", 16 << 20);
+    // Forzar a disco cada registro (-Darena.matchLogSync); si no, al rotar y al cerrar
+    private static final boolean SYNC_EACH = Boolean.getBoolean("arena.matchLogSync");
+
+    private static final byte END = 0;
+    private static final byte STRING = 1;
+    private static final byte MATCH = 2;
+    private static final int MAX_NAME_CHARS = 256;
+    private static final int STRING_HEADER_BYTES = 1 + 4 + 2;
+    private static final int MATCH_BYTES = 1 + 6 * 4 + 8 + 8 + 1;
+    private static final int CRC_BYTES = 4;
+    // Peor caso de un append: cuatro nombres nuevos y el registro de la batalla
+    private static final int MAX_APPEND_BYTES =
+        4 * (STRING_HEADER_BYTES + MAX_NAME_CHARS * 4 + CRC_BYTES) + MATCH_BYTES + CRC_BYTES;
+
+    private final Path directory;
+    private final CRC32 crc = new CRC32();
+    private final Map<String, Integer> strings = new HashMap<>();
+    private int segmentNumber;
+    private MappedByteBuffer segment;
+    private boolean closed = false;
+
+    private MatchJournal(Path directory) {
+        this.directory = directory;
+    }
+
+    // Abre el registro: reproduce todos los segmentos en orden y deja el último listo para escribir
+    static MatchJournal open(Path directory, Consumer<MatchResult> replay) throws IOException {
+        Files.createDirectories(directory);
+        MatchJournal journal = new MatchJournal(directory);
+
+        List<Path> segments = segments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            boolean last = i == segments.size() - 1;
+            // Solo el último segmento recibe escrituras; los anteriores se leen tal como están
+            MappedByteBuffer data = last ? map(segments.get(i)) : mapReadOnly(segments.get(i));
+            Map<Integer, String> table = new HashMap<>();
+            int tail = replaySegment(data, table, replay, journal.crc);
+
+            if (tail < data.limit() && data.get(tail) != END) {
+                GameLog.warn("Registro de batallas dañado en " + segments.get(i), ", se descarta desde el byte " + tail);
+                if (last) {
+                    // Recuperación de la cola: lo que sigue al último registro válido se borra
+                    for (int p = tail; p < data.limit(); p++) {
+                        data.put(p, END);
+                    }
+                    data.force();
+                }
+            }
+            if (last) {
+                journal.segmentNumber = segmentNumber(segments.get(i));
+                journal.segment = data;
+                journal.segment.position(tail);
+                table.forEach((id, name) -> journal.strings.put(name, id));
+            }
+        }
+
+        if (journal.segment == null) {
+            journal.rotate();
+        }
+        return journal;
+    }
+
+    // Solo lectura, para herramientas que corren junto a un servidor vivo: no recupera la
+    // cola, no crea segmentos y no fuerza nada a disco. Un registro a medio escribir en el
+    // último segmento simplemente marca el final de lo leído
+    static void replay(Path directory, Consumer<MatchResult> replay) throws IOException {
+        CRC32 crc = new CRC32();
+        for (Path segment : segments(directory)) {
+            replaySegment(mapReadOnly(segment), new HashMap<>(), replay, crc);
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> segmentNumber(path) > 0)
+                .sorted(Comparator.comparingInt(MatchJournal::segmentNumber))
+                .collect(Collectors.toList());
+        }
+    }
+
+    // Devuelve el desplazamiento del primer byte que no es un registro válido
+    private static int replaySegment(ByteBuffer data, Map<Integer, String> table,
+                                     Consumer<MatchResult> replay, CRC32 crc) {
+        int offset = 0;
+        while (offset < data.limit()) {
+            byte type = data.get(offset);
+            int length;
+            if (type == STRING && offset + STRING_HEADER_BYTES <= data.limit()) {
+                length = STRING_HEADER_BYTES + Short.toUnsignedInt(data.getShort(offset + 5));
+            } else if (type == MATCH) {
+                length = MATCH_BYTES;
+            } else {
+                return offset;
+            }
+            if (offset + length + CRC_BYTES > data.limit()
+                    || checksum(crc, data, offset, length) != data.getInt(offset + length)) {
+                return offset;
+            }
+
+            if (type == STRING) {
+                byte[] bytes = new byte[length - STRING_HEADER_BYTES];
+                data.get(offset + STRING_HEADER_BYTES, bytes);
+                table.put(data.getInt(offset + 1), new String(bytes, StandardCharsets.UTF_8));
+            } else {
+                MatchResult result = readMatch(data, offset, table);
+                if (result == null) return offset;
+                replay.accept(result);
+            }
+            offset += length + CRC_BYTES;
+        }
+        return offset;
+    }
+
+    private static MatchResult readMatch(ByteBuffer data, int offset, Map<Integer, String> table) {
+        String winner = table.get(data.getInt(offset + 1));
+        String loser = table.get(data.getInt(offset + 5));
+        String winnerWeapon = table.get(data.getInt(offset + 9));
+        String loserWeapon = table.get(data.getInt(offset + 13));
+        if (winner == null || loser == null || winnerWeapon == null || loserWeapon == null) {
+            return null;
+        }
+        LocalDateTime timestamp = LocalDateTime.ofInstant(
+            Instant.ofEpochMilli(data.getLong(offset + 33)), ZoneId.systemDefault());
+        return new MatchResult(winner, loser,
+            data.getInt(offset + 17), data.getInt(offset + 21), data.getLong(offset + 25),
+            winnerWeapon, loserWeapon, data.get(offset + 41) != 0, timestamp);
+    }
+
+    // Llamado por varias salas a la vez: cada append es una copia en memoria bajo el monitor
+    synchronized void append(MatchResult result) {
+        if (closed) return;
+        if (segment.remaining() < MAX_APPEND_BYTES + 1 && !rotateQuietly()) {
+            return;
+        }
+
+        int winner = intern(result.getWinner());
+        int loser = intern(result.getLoser());
+        int winnerWeapon = intern(result.getWinnerWeapon());
+        int loserWeapon = intern(result.getLoserWeapon());
+
+        int start = segment.position();
+        segment.put(MATCH)
+            .putInt(winner)
+            .putInt(loser)
+            .putInt(winnerWeapon)
+            .putInt(loserWeapon)
+            .putInt(result.getWinnerDamageDealt())
+            .putInt(result.getLoserDamageDealt())
+            .putLong(result.getDurationMs())
+            .putLong(result.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+            .put((byte) (result.wasSurrender() ? 1 : 0));
+        segment.putInt(checksum(crc, segment, start, MATCH_BYTES));
+
+        if (SYNC_EACH) {
+            segment.force();
+        }
+    }
+
+    // Los jugadores llegan ya acotados a ClientHandler.MAX_NAME_CHARS; el recorte solo
+    // protege el formato, y la tabla usa el nombre guardado para que la reproducción
+    // devuelva los mismos ids que la sesión que escribió
+    private int intern(String name) {
+        String stored = name.length() > MAX_NAME_CHARS ? name.substring(0, MAX_NAME_CHARS) : name;
+        Integer known = strings.get(stored);
+        if (known != null) return known;
+
+        byte[] bytes = stored.getBytes(StandardCharsets.UTF_8);
+        int id = strings.size();
+        int start = segment.position();
+        segment.put(STRING).putInt(id).putShort((short) bytes.length).put(bytes);
+        segment.putInt(checksum(crc, segment, start, STRING_HEADER_BYTES + bytes.length));
+        strings.put(stored, id);
+        return id;
+    }
+
+    private static int checksum(CRC32 crc, ByteBuffer data, int offset, int length) {
+        crc.reset();
+        crc.update(data.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    // Un fallo al crear el siguiente segmento desactiva el registro, no la sala que llama
+    private boolean rotateQuietly() {
+        try {
+            rotate();
+            return true;
+        } catch (IOException e) {
+            GameLog.error("No se pudo rotar el registro de batallas: ", e.getMessage());
+            closed = true;
+            return false;
+        }
+    }
+
+    private void rotate() throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        segmentNumber++;
+        segment = map(directory.resolve(String.format("matches-%06d.seg", segmentNumber)));
+        strings.clear();
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), SEGMENT_BYTES));
+        }
+    }
+
+    private static MappedByteBuffer mapReadOnly(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static int segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith("matches-") || !name.endsWith(".seg")) return -1;
+        try {
+            return Integer.parseInt(name.substring(8, name.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        segment.force();
+    }
+}
@@ -17,12 +17,21 @@ public final class MatchResult {
                       int winnerDamageDealt, int loserDamageDealt,
                       long durationMs, String winnerWeapon, 
                       String loserWeapon, boolean wasSurrender) {
+        this(winner, loser, winnerDamageDealt, loserDamageDealt, durationMs,
+            winnerWeapon, loserWeapon, wasSurrender, LocalDateTime.now());
+    }
+
+    // Para resultados reconstruidos (registro persistente): conserva la fecha original
+    public MatchResult(String winner, String loser, 
+                      int winnerDamageDealt, int loserDamageDealt,
+                      long durationMs, String winnerWeapon, 
+                      String loserWeapon, boolean wasSurrender, LocalDateTime timestamp) {
         this.winner = winner;
         this.loser = loser;
         this.winnerDamageDealt = winnerDamageDealt;
         this.loserDamageDealt = loserDamageDealt;
         this.durationMs = durationMs;
-        this.timestamp = LocalDateTime.now();
+        this.timestamp = timestamp;
         this.winnerWeapon = winnerWeapon;
         this.loserWeapon = loserWeapon;
         this.wasSurrender = wasSurrender;
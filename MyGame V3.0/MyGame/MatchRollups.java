@@ -0,0 +1,70 @@
+// MatchRollups.java - Resúmenes de las batallas retiradas del historial en columnas
+import java.time.*;
+import java.util.*;
+
+// Lo que queda de una batalla cuando su fila sale del historial: sus totales por jugador,
+// arma y rivalidad (en un StatsAggregate) y sus totales por día. Su tamaño depende de
+// jugadores y días, no de batallas
+final class MatchRollups {
+
+    // Totales de un día
+    record Day(LocalDate date, long matches, long surrenders, long durationMs, long damage) {
+
+        double getAverageDurationMs() {
+            return matches > 0 ? (double) durationMs / matches : 0.0;
+        }
+    }
+
+    private final StatsAggregate total = new StatsAggregate();
+    // Por día (epoch day): batallas, rendiciones, duración y daño
+    private final TreeMap<Long, long[]> days = new TreeMap<>();
+
+    // Las filas deben llegar en el orden del historial
+    synchronized void add(MatchStore.View columns, int from, int to) {
+        total.addRows(columns, from, to);
+        addDays(days, columns, from, to);
+    }
+
+    // Suma por día de unas filas, para combinar con las ya resumidas
+    static void addDays(Map<Long, long[]> days, MatchStore.View columns, int from, int to) {
+        ZoneId zone = ZoneId.systemDefault();
+        for (int row = from; row < to; row++) {
+            long day = LocalDate.ofInstant(Instant.ofEpochMilli(columns.timestampMillis(row)), zone).toEpochDay();
+            long[] totals = days.computeIfAbsent(day, k -> new long[4]);
+            totals[0]++;
+            if (columns.surrender(row)) {
+                totals[1]++;
+            }
+            totals[2] += columns.durationMs(row);
+            totals[3] += columns.winnerDamage(row) + columns.loserDamage(row);
+        }
+    }
+
+    // Copia de los totales resumidos; quien la recibe puede sumarle las filas que siguen
+    synchronized StatsAggregate copyTotal() {
+        StatsAggregate copy = new StatsAggregate();
+        copy.merge(total);
+        return copy;
+    }
+
+    // Suma los totales resumidos a un agregado cuyas filas van después
+    synchronized void mergeInto(StatsAggregate target) {
+        target.merge(total);
+    }
+
+    synchronized long getMatches() {
+        return total.getMatches();
+    }
+
+    // Copia los totales por día en el mapa dado, que luego admite más filas con addDays
+    synchronized void copyDaysTo(Map<Long, long[]> target) {
+        days.forEach((day, totals) -> target.put(day, totals.clone()));
+    }
+
+    static List<Day> toDays(Map<Long, long[]> days) {
+        List<Day> result = new ArrayList<>(days.size());
+        days.forEach((day, totals) -> result.add(
+            new Day(LocalDate.ofEpochDay(day), totals[0], totals[1], totals[2], totals[3])));
+        return result;
+    }
+}
@@ -0,0 +1,273 @@
+// MatchStore.java - Historial de batallas en columnas primitivas con nombres codificados por diccionario
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.*;
+import java.util.function.BiConsumer;
+
+// Mismo esquema que un registro de solo inserción: escritores sin bloqueos que reservan
+// una posición y lectores sobre el prefijo publicado. Cada batalla ocupa unos 45 bytes
+// en vez de un objeto con cuatro referencias a String y un LocalDateTime.
+//
+// Los segmentos más viejos pueden retirarse (evictBefore): sus filas pasan a MatchRollups
+// y las vistas empiezan en first(). Los números de fila no cambian al retirar
+final class MatchStore {
+    private static final int SEGMENT_SHIFT = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private static final class Segment {
+        final long base;
+        final int[] winner = new int[SEGMENT_SIZE];
+        final int[] loser = new int[SEGMENT_SIZE];
+        final int[] winnerWeapon = new int[SEGMENT_SIZE];
+        final int[] loserWeapon = new int[SEGMENT_SIZE];
+        final int[] winnerDamage = new int[SEGMENT_SIZE];
+        final int[] loserDamage = new int[SEGMENT_SIZE];
+        final long[] durationMs = new long[SEGMENT_SIZE];
+        final long[] timestampMillis = new long[SEGMENT_SIZE];
+        final AtomicLongArray surrender = new AtomicLongArray(SEGMENT_SIZE / 64);
+        // Bit por fila escrita: su escritura volátil publica las columnas de esa fila
+        final AtomicLongArray written = new AtomicLongArray(SEGMENT_SIZE / 64);
+        final AtomicReference<Segment> next = new AtomicReference<>();
+
+        Segment(long base) {
+            this.base = base;
+        }
+
+        boolean isWritten(int row) {
+            return (written.get(row >>> 6) & (1L << row)) != 0;
+        }
+    }
+
+    private final Dictionary names = new Dictionary();
+    // Primer segmento retenido; solo avanza, con el monitor de este objeto
+    private volatile Segment head = new Segment(0);
+    private volatile Segment tail = head;
+    private final MatchRollups rollups = new MatchRollups();
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+
+    // Devuelve la fila asignada; visible para lectores cuando el prefijo la alcanza
+    int append(MatchResult result) {
+        return append(names.idOf(result.getWinner()), names.idOf(result.getLoser()),
+            names.idOf(result.getWinnerWeapon()), names.idOf(result.getLoserWeapon()),
+            result.getWinnerDamageDealt(), result.getLoserDamageDealt(), result.getDurationMs(),
+            result.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+            result.wasSurrender());
+    }
+
+    // Igual que append(MatchResult) pero con las columnas ya separadas
+    int append(String winner, String loser, String winnerWeapon, String loserWeapon,
+               int winnerDamage, int loserDamage, long durationMs, long timestampMillis, boolean surrender) {
+        return append(names.idOf(winner), names.idOf(loser), names.idOf(winnerWeapon), names.idOf(loserWeapon),
+            winnerDamage, loserDamage, durationMs, timestampMillis, surrender);
+    }
+
+    private int append(int winner, int loser, int winnerWeapon, int loserWeapon,
+                       int winnerDamage, int loserDamage, long durationMs, long timestampMillis, boolean surrender) {
+        long index = claimed.getAndIncrement();
+        Segment segment = segmentFor(index);
+        int row = (int) (index & SEGMENT_MASK);
+
+        segment.winner[row] = winner;
+        segment.loser[row] = loser;
+        segment.winnerWeapon[row] = winnerWeapon;
+        segment.loserWeapon[row] = loserWeapon;
+        segment.winnerDamage[row] = winnerDamage;
+        segment.loserDamage[row] = loserDamage;
+        segment.durationMs[row] = durationMs;
+        segment.timestampMillis[row] = timestampMillis;
+        if (surrender) {
+            segment.surrender.accumulateAndGet(row >>> 6, 1L << row, (bits, bit) -> bits | bit);
+        }
+        segment.written.accumulateAndGet(row >>> 6, 1L << row, (bits, bit) -> bits | bit);
+
+        advancePublished();
+        return (int) index;
+    }
+
+    // El escritor que llena un hueco avanza también sobre las filas que le siguen
+    private void advancePublished() {
+        while (true) {
+            long position = published.get();
+            if (position >= claimed.get()) return;
+            if (!segmentFor(position).isWritten((int) (position & SEGMENT_MASK))) return;
+            published.compareAndSet(position, position + 1);
+        }
+    }
+
+    private Segment segmentFor(long index) {
+        long base = index & ~SEGMENT_MASK;
+        Segment segment = tail;
+        if (segment.base > base) {
+            segment = head;
+        }
+        while (segment.base < base) {
+            Segment next = segment.next.get();
+            if (next == null) {
+                Segment created = new Segment(segment.base + SEGMENT_SIZE);
+                next = segment.next.compareAndSet(null, created) ? created : segment.next.get();
+            }
+            segment = next;
+        }
+        if (segment.base > tail.base) {
+            tail = segment;
+        }
+        return segment;
+    }
+
+    int size() {
+        return (int) published.get();
+    }
+
+    // Columnas retenidas del prefijo publicado en este instante; nada se copia
+    View snapshot() {
+        int size = size();
+        Segment first = head;
+        List<Segment> segments = new ArrayList<>((int) (size - first.base) / SEGMENT_SIZE + 1);
+        for (Segment segment = first; segment != null && segment.base < size; segment = segment.next.get()) {
+            segments.add(segment);
+        }
+        return new View(segments.toArray(new Segment[0]), (int) first.base, size, names);
+    }
+
+    // Retira los segmentos completos cuyas batallas son todas anteriores a cutoffMillis,
+    // en orden y hasta el primero que tenga alguna más nueva. Devuelve las filas retiradas
+    synchronized int evictBefore(long cutoffMillis) {
+        int evicted = 0;
+        Segment segment = head;
+        Segment next = segment.next.get();
+        while (next != null && segment.base + SEGMENT_SIZE <= published.get()
+                && newestMillis(segment) < cutoffMillis) {
+            int from = (int) segment.base;
+            rollups.add(new View(new Segment[] {segment}, from, from + SEGMENT_SIZE, names),
+                from, from + SEGMENT_SIZE);
+            head = next;
+            evicted += SEGMENT_SIZE;
+            segment = next;
+            next = segment.next.get();
+        }
+        return evicted;
+    }
+
+    private static long newestMillis(Segment segment) {
+        long newest = Long.MIN_VALUE;
+        for (long millis : segment.timestampMillis) {
+            newest = Math.max(newest, millis);
+        }
+        return newest;
+    }
+
+    // Vista y resúmenes de todo lo anterior a ella, sin retiros entre medio
+    synchronized void withRollups(BiConsumer<MatchRollups, View> reader) {
+        reader.accept(rollups, snapshot());
+    }
+
+    // Filas retiradas hasta ahora
+    long evictedCount() {
+        return head.base;
+    }
+
+    // Acceso por fila a cada columna; los MatchResult se crean solo si se piden
+    // Las filas válidas van de first() a size() - 1
+    static final class View {
+        private final Segment[] segments;
+        private final int first;
+        private final int size;
+        private final Dictionary names;
+
+        private View(Segment[] segments, int first, int size, Dictionary names) {
+            this.segments = segments;
+            this.first = first;
+            this.size = size;
+            this.names = names;
+        }
+
+        // Primera fila retenida; las anteriores están en los resúmenes
+        int first() { return first; }
+        int size() { return size; }
+
+        private Segment segment(int row) {
+            Objects.checkIndex(row - first, size - first);
+            return segments[(row - first) >>> SEGMENT_SHIFT];
+        }
+
+        int winnerId(int row) { return segment(row).winner[row & SEGMENT_MASK]; }
+        int loserId(int row) { return segment(row).loser[row & SEGMENT_MASK]; }
+        int winnerWeaponId(int row) { return segment(row).winnerWeapon[row & SEGMENT_MASK]; }
+        int loserWeaponId(int row) { return segment(row).loserWeapon[row & SEGMENT_MASK]; }
+        int winnerDamage(int row) { return segment(row).winnerDamage[row & SEGMENT_MASK]; }
+        int loserDamage(int row) { return segment(row).loserDamage[row & SEGMENT_MASK]; }
+        long durationMs(int row) { return segment(row).durationMs[row & SEGMENT_MASK]; }
+        long timestampMillis(int row) { return segment(row).timestampMillis[row & SEGMENT_MASK]; }
+
+        boolean surrender(int row) {
+            int r = row & SEGMENT_MASK;
+            return (segment(row).surrender.get(r >>> 6) & (1L << r)) != 0;
+        }
+
+        // Nombre de jugador o de arma a partir de su id
+        String name(int id) { return names.nameOf(id); }
+
+        MatchResult get(int row) {
+            return new MatchResult(name(winnerId(row)), name(loserId(row)),
+                winnerDamage(row), loserDamage(row), durationMs(row),
+                name(winnerWeaponId(row)), name(loserWeaponId(row)), surrender(row),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(timestampMillis(row)), ZoneId.systemDefault()));
+        }
+
+        // Vista de lista de las filas retenidas que materializa cada resultado al leerlo
+        List<MatchResult> asList() {
+            return new MaterializingList(this);
+        }
+    }
+
+    private static final class MaterializingList extends AbstractList<MatchResult> implements RandomAccess {
+        private final View view;
+
+        MaterializingList(View view) {
+            this.view = view;
+        }
+
+        @Override
+        public MatchResult get(int index) {
+            Objects.checkIndex(index, size());
+            return view.get(view.first() + index);
+        }
+
+        @Override
+        public int size() {
+            return view.size() - view.first();
+        }
+    }
+
+    // Nombres de jugadores y armas: cada uno se guarda una vez y las filas usan su id
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] byId = new String[64];
+        private int count = 0;
+
+        int idOf(String name) {
+            Integer id = ids.get(name);
+            return id != null ? id : register(name);
+        }
+
+        private synchronized int register(String name) {
+            Integer id = ids.get(name);
+            if (id != null) return id;
+
+            if (count == byId.length) {
+                byId = Arrays.copyOf(byId, count * 2);
+            }
+            byId[count] = name;
+            ids.put(name, count);
+            return count++;
+        }
+
+        // Los ids llegan publicados junto con su fila, después de registrarse
+        String nameOf(int id) {
+            return byId[id];
+        }
+    }
+}
@@ -0,0 +1,283 @@
+// NioGameServer.java - Servidor no bloqueante: un hilo acepta y pocos bucles de E/S atienden a todos
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+public class NioGameServer {
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final int port;
+    private final IoLoop[] loops;
+    private final Consumer<ClientHandler> onConnect;
+
+    public NioGameServer(int port, int ioThreads, Consumer<ClientHandler> onConnect) throws IOException {
+        this.port = port;
+        this.onConnect = onConnect;
+        this.loops = new IoLoop[Math.max(1, ioThreads)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop(i);
+        }
+    }
+
+    // Acepta conexiones en el hilo llamador y las reparte entre los bucles de E/S
+    public void run() throws IOException {
+        Arrays.stream(loops).forEach(IoLoop::start);
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port));
+            int next = 0;
+            while (true) {
+                SocketChannel channel = server.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                GameLog.info("Nuevo cliente conectado desde: ", channel.getRemoteAddress());
+
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            }
+        }
+    }
+
+    // Bucle de E/S: un Selector atiende muchas conexiones sin hilo por jugador
+    private final class IoLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+        private final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+        IoLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "nio-io-" + index);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void register(SocketChannel channel) {
+            pendingChannels.add(channel);
+            selector.wakeup();
+        }
+
+        // Programa la escritura de una conexión; desde otro hilo despierta al selector
+        void scheduleWrite(NioConnection connection) {
+            pendingWrites.add(connection);
+            if (Thread.currentThread() != thread) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select();
+                    registerPending();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+
+                    // Las respuestas generadas al procesar comandos salen en esta misma vuelta
+                    writePending();
+                } catch (IOException e) {
+                    GameLog.error("Error en bucle ", thread.getName(), ": ", e.getMessage());
+                }
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pendingChannels.poll()) != null) {
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    NioConnection connection = new NioConnection(this, channel, key);
+                    key.attach(connection);
+                    connection.open();
+                } catch (IOException e) {
+                    GameLog.error("Error registrando cliente: ", e.getMessage());
+                    try { channel.close(); } catch (IOException ignored) {}
+                }
+            }
+        }
+
+        private void writePending() {
+            NioConnection connection;
+            while ((connection = pendingWrites.poll()) != null) {
+                connection.writeQueued();
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            NioConnection connection = (NioConnection) key.attachment();
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    connection.read(readBuffer);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.writeQueued();
+                }
+            } catch (IOException | CancelledKeyException e) {
+                connection.close();
+            } catch (RuntimeException e) {
+                GameLog.error("Error en handler para ", connection.handler.getPlayerName(), ": ", e.getMessage());
+                connection.close();
+            }
+        }
+    }
+
+    // Conexión no bloqueante: acumula bytes hasta fin de línea y encola las respuestas
+    private final class NioConnection implements ClientConnection {
+        private final IoLoop loop;
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final OutboundQueue queue = new OutboundQueue();
+        private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        // Bloque a medio escribir cuando el socket se llenó (solo el hilo del bucle)
+        private ByteBuffer inFlight;
+        private byte[] line = new byte[256];
+        private int lineLength = 0;
+        private ClientHandler handler;
+
+        NioConnection(IoLoop loop, SocketChannel channel, SelectionKey key) {
+            this.loop = loop;
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void open() {
+            handler = new ClientHandler(this);
+            onConnect.accept(handler);
+            handler.onConnect();
+        }
+
+        void read(ByteBuffer buffer) throws IOException {
+            buffer.clear();
+            if (channel.read(buffer) < 0) {
+                close();
+                return;
+            }
+            buffer.flip();
+
+            while (buffer.hasRemaining() && !closed.get()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    onLine(decodeLine());
+                } else if (lineLength == MAX_LINE_LENGTH) {
+                    close();
+                } else {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_LENGTH));
+                    }
+                    line[lineLength++] = b;
+                }
+            }
+        }
+
+        private String decodeLine() {
+            int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+            lineLength = 0;
+            return new String(line, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private void onLine(String text) {
+            if (handler.isSessionLine(text)) {
+                handler.onLine(text);
+            } else {
+                close();
+            }
+        }
+
+        @Override
+        public void send(ServerMessage message, int a, int b, int c, String s) {
+            queue.append(message, a, b, c, s);
+        }
+
+        @Override
+        public void setProtocol(WireProtocol protocol) {
+            queue.setProtocol(protocol);
+        }
+
+        @Override
+        public void sendShared(WireProtocol.Shared message) {
+            if (!queue.offerShared(message)) {
+                GameLog.warn("Cliente lento desconectado: ", getRemoteAddress());
+            }
+            scheduleWrite();
+        }
+
+        // Un solo bloque por lote de mensajes
+        @Override
+        public void flush() {
+            if (!queue.seal()) {
+                GameLog.warn("Cliente lento desconectado: ", getRemoteAddress());
+            }
+            scheduleWrite();
+        }
+
+        // El cierre por cliente lento también lo hace el bucle, dueño de la conexión
+        private void scheduleWrite() {
+            if ((queue.isClosed() || !queue.isEmpty()) && writeScheduled.compareAndSet(false, true)) {
+                loop.scheduleWrite(this);
+            }
+        }
+
+        // Solo desde el hilo del bucle: escribe lo posible y deja OP_WRITE si el socket se llena
+        void writeQueued() {
+            writeScheduled.set(false);
+            if (queue.isClosed()) {
+                close();
+                return;
+            }
+            if (!key.isValid()) return;
+            try {
+                while (true) {
+                    if (inFlight == null) {
+                        byte[] frame = queue.poll();
+                        if (frame == null) break;
+                        inFlight = ByteBuffer.wrap(frame);
+                    }
+                    channel.write(inFlight);
+                    if (inFlight.hasRemaining()) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    inFlight = null;
+                }
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            } catch (IOException | CancelledKeyException e) {
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            key.cancel();
+            try { channel.close(); } catch (IOException ignored) {}
+            queue.close();
+            handler.cleanup();
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            try {
+                return String.valueOf(channel.getRemoteAddress());
+            } catch (IOException e) {
+                return "desconocido";
+            }
+        }
+    }
+}
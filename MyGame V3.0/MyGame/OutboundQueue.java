@@ -0,0 +1,129 @@
+// OutboundQueue.java - Cola de salida acotada de un jugador, vaciada por su propio escritor
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+final class OutboundQueue {
+    // Qué hacer con una difusión que no cabe: descartarla, fusionarla con una igual ya en
+    // cola o desconectar al cliente. La salida propia del jugador nunca se descarta
+    enum Policy { DROP, COALESCE, DISCONNECT }
+
+    // Bytes pendientes por cliente (-Darena.outboundMaxBytes) y política (-Darena.slowConsumer)
+    static final int MAX_BYTES = Integer.getInteger("arena.outboundMaxBytes", 256 * 1024);
+    static final Policy POLICY = Policy.valueOf(
+        System.getProperty("arena.slowConsumer", "DISCONNECT").toUpperCase(Locale.ROOT));
+
+    private static final LongAdder dropped = new LongAdder();
+    private static final LongAdder coalesced = new LongAdder();
+    private static final LongAdder disconnected = new LongAdder();
+
+    // Bloque en cola; las difusiones llevan su contenido como clave para fusionarse
+    private record Queued(byte[] frame, ByteBuffer sharedKey) {
+    }
+
+    private final Policy policy;
+    private final int maxBytes;
+    // Salida del comando en curso ya codificada, bloques listos para escribir y, por
+    // contenido, cuántas copias de cada difusión esperan entre ellos
+    private final WireProtocol.Buffer pending = new WireProtocol.Buffer(256);
+    private final ArrayDeque<Queued> frames = new ArrayDeque<>();
+    private final Map<ByteBuffer, Integer> sharedFrames = new HashMap<>();
+    private int queuedBytes = 0;
+    private boolean closed = false;
+    // Protocolo negociado y plantillas de menú que ya conoce este cliente
+    private WireProtocol protocol = WireProtocol.TEXT;
+    private final BitSet definedTemplates = new BitSet();
+
+    OutboundQueue() {
+        this(POLICY, MAX_BYTES);
+    }
+
+    OutboundQueue(Policy policy, int maxBytes) {
+        this.policy = policy;
+        this.maxBytes = maxBytes;
+    }
+
+    static long droppedCount() { return dropped.sum(); }
+    static long coalescedCount() { return coalesced.sum(); }
+    static long disconnectedCount() { return disconnected.sum(); }
+
+    // Los mensajes se codifican al encolarse, así un cambio de protocolo no afecta a lo anterior
+    synchronized void setProtocol(WireProtocol protocol) {
+        this.protocol = protocol;
+    }
+
+    synchronized void append(ServerMessage message, int a, int b, int c, String s) {
+        if (closed) return;
+        protocol.encode(pending, definedTemplates, message, a, b, c, s);
+    }
+
+    // Convierte lo acumulado en un solo bloque. Devuelve false si el cliente
+    // acaba de superar el límite con la política DISCONNECT y hay que cerrarlo
+    synchronized boolean seal() {
+        if (closed || pending.size() == 0) return true;
+        byte[] frame = pending.toByteArray();
+        pending.reset();
+        return enqueue(frame, false);
+    }
+
+    // Encola un bloque compartido detrás de lo ya acumulado, sin volver a codificarlo
+    synchronized boolean offerShared(WireProtocol.Shared message) {
+        return seal() && (closed || enqueue(message.frame(protocol), true));
+    }
+
+    private boolean enqueue(byte[] frame, boolean shared) {
+        // Un bloque solo siempre cabe: el límite frena la acumulación, no los mensajes grandes
+        // Cada difusión trae un arreglo nuevo: la misma difusión repetida se reconoce por contenido
+        ByteBuffer key = shared ? ByteBuffer.wrap(frame) : null;
+        if (queuedBytes + frame.length > maxBytes && !frames.isEmpty()) {
+            // Respuestas, HP, fin de batalla y definiciones de menú no admiten pérdida: si no
+            // caben, el cliente no está leyendo y se le desconecta con cualquier política
+            if (!shared || policy == Policy.DISCONNECT) {
+                disconnected.increment();
+                close();
+                return false;
+            }
+            if (policy == Policy.COALESCE && sharedFrames.containsKey(key)) {
+                coalesced.increment();
+            } else {
+                dropped.increment();
+            }
+            return true;
+        }
+
+        frames.add(new Queued(frame, key));
+        queuedBytes += frame.length;
+        if (shared) {
+            sharedFrames.merge(key, 1, Integer::sum);
+        }
+        return true;
+    }
+
+    // Siguiente bloque para el escritor, o null si no queda nada
+    synchronized byte[] poll() {
+        Queued queued = frames.poll();
+        if (queued == null) return null;
+        queuedBytes -= queued.frame().length;
+        if (queued.sharedKey() != null) {
+            sharedFrames.computeIfPresent(queued.sharedKey(), (key, count) -> count > 1 ? count - 1 : null);
+        }
+        return queued.frame();
+    }
+
+    synchronized boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    // Descarta lo pendiente; lo que llegue después se ignora
+    synchronized void close() {
+        closed = true;
+        pending.reset();
+        frames.clear();
+        sharedFrames.clear();
+        queuedBytes = 0;
+    }
+}
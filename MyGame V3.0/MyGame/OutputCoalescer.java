@@ -0,0 +1,77 @@
+// OutputCoalescer.java - Agrupa la salida de cada comando en una sola escritura por destinatario
+import java.util.*;
+import java.util.concurrent.*;
+
+final class OutputCoalescer {
+    // Latencia máxima para mensajes a otros jugadores (0 = vaciar al terminar el comando)
+    static final long MAX_LATENCY_MS = Long.getLong("arena.flushLatencyMs", 2);
+
+    // Destinatarios tocados por el comando que se procesa en este hilo
+    private static final ThreadLocal<Batch> currentBatch = ThreadLocal.withInitial(Batch::new);
+    // Jugadores con salida pendiente de vaciar por el hilo temporizador
+    private static final Set<ClientHandler> dirty = ConcurrentHashMap.newKeySet();
+
+    static {
+        if (MAX_LATENCY_MS > 0) {
+            ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "output-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleAtFixedRate(OutputCoalescer::flushDirty,
+                MAX_LATENCY_MS, MAX_LATENCY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private OutputCoalescer() {}
+
+    // Ejecuta el cuerpo acumulando la salida; al final vacía al dueño una sola vez
+    static void inBatch(ClientHandler owner, Runnable body) {
+        Batch batch = currentBatch.get();
+        if (batch.owner != null) {
+            body.run();
+            return;
+        }
+
+        batch.owner = owner;
+        try {
+            body.run();
+        } finally {
+            batch.owner = null;
+            owner.flushOutput();
+            batch.touched.forEach(OutputCoalescer::flushLater);
+            batch.touched.clear();
+        }
+    }
+
+    // Llamado tras cada mensaje encolado para un jugador
+    static void touched(ClientHandler recipient) {
+        Batch batch = currentBatch.get();
+        if (batch.owner == null) {
+            // Fuera de un comando no hay un final de lote: se vacía enseguida
+            recipient.flushOutput();
+        } else if (recipient != batch.owner && !batch.touched.contains(recipient)) {
+            batch.touched.add(recipient);
+        }
+    }
+
+    private static void flushLater(ClientHandler recipient) {
+        if (MAX_LATENCY_MS == 0) {
+            recipient.flushOutput();
+        } else {
+            dirty.add(recipient);
+        }
+    }
+
+    private static void flushDirty() {
+        dirty.forEach(recipient -> {
+            dirty.remove(recipient);
+            recipient.flushOutput();
+        });
+    }
+
+    private static final class Batch {
+        private ClientHandler owner;
+        private final List<ClientHandler> touched = new ArrayList<>(4);
+    }
+}
@@ -15,14 +15,18 @@ public final class Player {
     // CORREGIDO: Retorna nuevo Player con daño aplicado
     public Player takeDamage(int amount) {
         int newHp = Math.max(0, hp - amount);
-        System.out.println(name + " recibe " + amount + " de daño. HP: " + newHp);
+        if (GameLog.isEnabled(GameLog.Level.INFO)) {
+            GameLog.info(name, " recibe ", amount, " de daño. HP: ", newHp);
+        }
         return new Player(name, newHp, weapon);
     }
 
     // CORREGIDO: Retorna nuevo Player curado
     public Player heal(int amount) {
         int newHp = Math.min(MAX_HP, hp + amount);
-        System.out.println(name + " se curó +" + amount + " HP. Vida actual: " + newHp);
+        if (GameLog.isEnabled(GameLog.Level.INFO)) {
+            GameLog.info(name, " se curó +", amount, " HP. Vida actual: ", newHp);
+        }
         return new Player(name, newHp, weapon);
     }
 
@@ -30,8 +34,10 @@ public final class Player {
     public BiFunction<Player, Enemy, Enemy> attackEnemy() {
         return (player, enemy) -> {
             int damage = weapon.getDamage();
-            System.out.println(name + " ataca con " + weapon.getName() + 
-                             " y causa " + damage + " de daño a " + enemy.getEnemyName());
+            if (GameLog.isEnabled(GameLog.Level.INFO)) {
+                GameLog.info(name, " ataca con ", weapon.getName(),
+                             " y causa ", damage, " de daño a ", enemy.getEnemyName());
+            }
             return enemy.takeDamage(damage);
         };
     }
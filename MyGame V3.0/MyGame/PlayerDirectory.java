@@ -0,0 +1,54 @@
+// PlayerDirectory.java - Directorio concurrente de jugadores conectados, indexado por nombre
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.*;
+
+final class PlayerDirectory {
+    // Conexiones en orden de llegada (para listar y difundir) sin copiar arreglos
+    private final ConcurrentSkipListMap<Long, ClientHandler> connected = new ConcurrentSkipListMap<>();
+    // Nombre normalizado -> jugador; putIfAbsent hace atómica la reserva del nombre
+    private final ConcurrentHashMap<String, ClientHandler> byName = new ConcurrentHashMap<>();
+    private final AtomicLong nextSessionId = new AtomicLong();
+    // size() de ConcurrentSkipListMap recorre el mapa; se lleva la cuenta aparte
+    private final AtomicInteger count = new AtomicInteger();
+
+    // Registra una conexión nueva y devuelve su identificador de sesión
+    long connect(ClientHandler player) {
+        long sessionId = nextSessionId.incrementAndGet();
+        connected.put(sessionId, player);
+        count.incrementAndGet();
+        return sessionId;
+    }
+
+    // Reserva el nombre para el jugador; falla si otro ya lo tiene (sin distinguir mayúsculas)
+    boolean reserveName(String name, ClientHandler player) {
+        return byName.putIfAbsent(normalize(name), player) == null;
+    }
+
+    Optional<ClientHandler> findByName(String name) {
+        return Optional.ofNullable(byName.get(normalize(name)));
+    }
+
+    void disconnect(long sessionId, ClientHandler player) {
+        if (connected.remove(sessionId, player)) {
+            count.decrementAndGet();
+        }
+        Optional.ofNullable(player.getPlayerName())
+            .ifPresent(name -> byName.remove(normalize(name), player));
+    }
+
+    Stream<ClientHandler> stream() {
+        return connected.values().stream();
+    }
+
+    int size() {
+        return count.get();
+    }
+
+    // Misma equivalencia que equalsIgnoreCase, independiente del locale
+    static String normalize(String name) {
+        return name.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,63 @@
+// PlayerStats.java - Estadísticas globales de un jugador, visibles en el leaderboard
+class PlayerStats {
+    private final String playerName;
+    // Los tres valores se reemplazan juntos: un lector nunca ve kills nuevas con muertes viejas
+    private volatile Totals totals = new Totals(0, 0, 0);
+
+    private final Leaderboard leaderboard;
+
+    // Valores de un jugador en un instante
+    record Totals(int kills, int deaths, int totalDamage) {
+        double kdRatio() {
+            return deaths > 0 ? (double) kills / deaths : kills;
+        }
+    }
+
+    public PlayerStats(String playerName) {
+        this(playerName, null);
+    }
+
+    // Con un leaderboard, cada actualización reordena al jugador en él
+    PlayerStats(String playerName, Leaderboard leaderboard) {
+        this.playerName = playerName;
+        this.leaderboard = leaderboard;
+        if (leaderboard != null) {
+            leaderboard.update(playerName, 0, 0, 0);
+        }
+    }
+
+    // Suma lo conseguido desde la última actualización: los totales sobreviven a las sesiones
+    public synchronized void addStats(int newKills, int newDeaths, int newDamage) {
+        Totals current = totals;
+        Totals next = new Totals(current.kills() + newKills, current.deaths() + newDeaths,
+            current.totalDamage() + newDamage);
+        totals = next;
+        if (leaderboard != null) {
+            leaderboard.update(playerName, next.kills(), next.deaths(), next.totalDamage());
+        }
+    }
+
+    Totals snapshot() {
+        return totals;
+    }
+
+    public double getKDRatio() {
+        return totals.kdRatio();
+    }
+
+    public String getPlayerName() { return playerName; }
+    public int getKills() { return totals.kills(); }
+    public int getDeaths() { return totals.deaths(); }
+    public int getTotalDamage() { return totals.totalDamage(); }
+
+    @Override
+    public String toString() {
+        Totals current = totals;
+        return formatLine(playerName, current.kills(), current.deaths(), current.kdRatio(), current.totalDamage());
+    }
+
+    static String formatLine(String playerName, int kills, int deaths, double kdRatio, int totalDamage) {
+        return String.format("%-15s | K: %-3d | D: %-3d | K/D: %-5.2f | Daño: %-6d",
+            playerName, kills, deaths, kdRatio, totalDamage);
+    }
+}
@@ -0,0 +1,319 @@
+// PlayerStatsStore.java - Estadísticas globales persistentes: registro de deltas y fotos compactadas
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.stream.*;
+import java.util.zip.CRC32;
+
+// Archivos de la carpeta:
+//   players-NNNNNN.wal  deltas en orden: [longitud u16][nombre UTF-8][kills][muertes][daño][crc]
+//   players.snap        foto de todos los totales: [magia][generación long][secciones int] y por
+//                       sección [entradas int][bytes int][crc int][entradas con el mismo formato]
+// La foto guarda la primera generación de registro que NO contiene; al arrancar se carga
+// la foto y se aplican los registros desde esa generación, así un corte entre escribir la
+// foto y borrar el registro viejo no cuenta nada dos veces.
+//
+// Las salas solo encolan el delta; un hilo escritor agrupa lo pendiente, lo escribe y
+// fuerza a disco una vez por lote
+final class PlayerStatsStore implements Closeable {
+    // Cantidad de deltas entre fotos (-Darena.playerSnapshotEvery)
+    private static final int SNAPSHOT_EVERY = Integer.getInteger("arena.playerSnapshotEvery", 10_000);
+    private static final int SNAPSHOT_MAGIC = 0x50535331;   // "PSS1"
+    // Entradas por sección de la foto: cada sección se decodifica en paralelo al cargar
+    private static final int SECTION_ENTRIES = 4096;
+    private static final int MAX_NAME_CHARS = 256;
+    private static final int VALUES_BYTES = 3 * 4;
+    private static final int CRC_BYTES = 4;
+    private static final String SNAPSHOT_FILE = "players.snap";
+
+    private record Delta(String name, int kills, int deaths, int damage) {}
+
+    private static final Delta CLOSE = new Delta("", 0, 0, 0);
+
+    private final Path directory;
+    private final BlockingQueue<Delta> pending = new LinkedBlockingQueue<>();
+    private final CRC32 crc = new CRC32();
+    // Totales según lo ya escrito; solo los toca el hilo escritor una vez abierto
+    private final Map<String, int[]> totals;
+    private final Thread writer;
+    private long generation;
+    private FileChannel wal;
+    private int sinceSnapshot = 0;
+    private volatile boolean closed = false;
+
+    private PlayerStatsStore(Path directory, Map<String, int[]> totals, long generation, FileChannel wal) {
+        this.directory = directory;
+        this.totals = totals;
+        this.generation = generation;
+        this.wal = wal;
+        this.writer = new Thread(this::writeLoop, "player-stats-wal");
+        this.writer.setDaemon(true);
+    }
+
+    // Carga foto y registros, entrega cada total a loaded y deja el escritor en marcha
+    static PlayerStatsStore open(Path directory, BiConsumer<String, int[]> loaded) throws IOException {
+        Files.createDirectories(directory);
+
+        Map<String, int[]> totals = new HashMap<>();
+        long firstGeneration = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            firstGeneration = loadSnapshot(snapshot, totals);
+        }
+
+        List<Path> logs;
+        try (Stream<Path> files = Files.list(directory)) {
+            logs = files.filter(path -> generationOf(path) >= 0)
+                .sorted(Comparator.comparingLong(PlayerStatsStore::generationOf))
+                .collect(Collectors.toList());
+        }
+
+        long generation = firstGeneration;
+        CRC32 crc = new CRC32();
+        for (Path log : logs) {
+            long logGeneration = generationOf(log);
+            if (logGeneration < firstGeneration) {
+                // Ya incluido en la foto: quedó de un corte antes de borrarlo
+                Files.delete(log);
+                continue;
+            }
+            replayLog(log, totals, crc);
+            generation = logGeneration;
+        }
+
+        FileChannel wal = FileChannel.open(walPath(directory, generation),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        totals.forEach(loaded);
+
+        PlayerStatsStore store = new PlayerStatsStore(directory, totals, generation, wal);
+        store.writer.start();
+        return store;
+    }
+
+    // No espera a disco: el delta se escribe en el próximo lote del hilo escritor
+    void record(String name, int kills, int deaths, int damage) {
+        if (closed) return;
+        pending.add(new Delta(name, kills, deaths, damage));
+    }
+
+    private void writeLoop() {
+        List<Delta> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(pending.take());
+                pending.drainTo(batch);
+                boolean closing = batch.removeIf(delta -> delta == CLOSE);
+                write(batch);
+                batch.clear();
+                if (sinceSnapshot >= SNAPSHOT_EVERY || closing) {
+                    snapshot();
+                }
+                if (closing) return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            closed = true;
+            GameLog.error("No se pudo escribir el registro de estadísticas: ", e.getMessage());
+        }
+    }
+
+    private void write(List<Delta> batch) throws IOException {
+        if (batch.isEmpty()) return;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Delta delta : batch) {
+            String name = delta.name().length() > MAX_NAME_CHARS
+                ? delta.name().substring(0, MAX_NAME_CHARS) : delta.name();
+            byte[] entry = encodeEntry(name, delta.kills(), delta.deaths(), delta.damage());
+            crc.reset();
+            crc.update(entry);
+            out.write(entry);
+            out.writeInt((int) crc.getValue());
+
+            int[] values = totals.computeIfAbsent(name, k -> new int[3]);
+            values[0] += delta.kills();
+            values[1] += delta.deaths();
+            values[2] += delta.damage();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) {
+            wal.write(buffer);
+        }
+        wal.force(false);
+        sinceSnapshot += batch.size();
+    }
+
+    // Abre la generación siguiente, escribe la foto que la precede y recién entonces borra
+    // el registro anterior
+    private void snapshot() throws IOException {
+        long next = generation + 1;
+        FileChannel nextWal = FileChannel.open(walPath(directory, next),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            List<Map.Entry<String, int[]>> entries = new ArrayList<>(totals.entrySet());
+            int sections = (entries.size() + SECTION_ENTRIES - 1) / SECTION_ENTRIES;
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(next);
+            out.writeInt(sections);
+            for (int s = 0; s < sections; s++) {
+                List<Map.Entry<String, int[]>> section =
+                    entries.subList(s * SECTION_ENTRIES, Math.min(entries.size(), (s + 1) * SECTION_ENTRIES));
+                ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                for (Map.Entry<String, int[]> entry : section) {
+                    int[] values = entry.getValue();
+                    payload.write(encodeEntry(entry.getKey(), values[0], values[1], values[2]));
+                }
+                byte[] data = payload.toByteArray();
+                crc.reset();
+                crc.update(data);
+                out.writeInt(section.size());
+                out.writeInt(data.length);
+                out.writeInt((int) crc.getValue());
+                out.write(data);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+            StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        wal.close();
+        Files.deleteIfExists(walPath(directory, generation));
+        wal = nextWal;
+        generation = next;
+        sinceSnapshot = 0;
+    }
+
+    private static byte[] encodeEntry(String name, int kills, int deaths, int damage) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(2 + bytes.length + VALUES_BYTES)
+            .putShort((short) bytes.length)
+            .put(bytes)
+            .putInt(kills)
+            .putInt(deaths)
+            .putInt(damage)
+            .array();
+    }
+
+    // Devuelve la generación del primer registro que falta aplicar
+    private static long loadSnapshot(Path path, Map<String, int[]> totals) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.remaining() < 16 || data.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Foto de estadísticas inválida: " + path);
+        }
+        long generation = data.getLong();
+        int sections = data.getInt();
+
+        // Solo las cabeceras se recorren en orden; cada sección se decodifica por separado
+        List<ByteBuffer> payloads = new ArrayList<>(sections);
+        List<int[]> headers = new ArrayList<>(sections);
+        for (int s = 0; s < sections; s++) {
+            int entries = data.getInt();
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length < 0 || length > data.remaining()) {
+                throw new IOException("Foto de estadísticas truncada: " + path);
+            }
+            payloads.add(data.slice(data.position(), length));
+            headers.add(new int[] {entries, checksum});
+            data.position(data.position() + length);
+        }
+
+        List<Map<String, int[]>> decoded = IntStream.range(0, sections).parallel()
+            .mapToObj(s -> decodeSection(payloads.get(s), headers.get(s)[0], headers.get(s)[1]))
+            .collect(Collectors.toList());
+        if (decoded.contains(null)) {
+            throw new IOException("Foto de estadísticas dañada: " + path);
+        }
+        decoded.forEach(totals::putAll);
+        return generation;
+    }
+
+    private static Map<String, int[]> decodeSection(ByteBuffer payload, int entries, int checksum) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) return null;
+
+        Map<String, int[]> section = new HashMap<>(entries * 2);
+        for (int i = 0; i < entries; i++) {
+            byte[] name = new byte[Short.toUnsignedInt(payload.getShort())];
+            payload.get(name);
+            section.put(new String(name, StandardCharsets.UTF_8),
+                new int[] {payload.getInt(), payload.getInt(), payload.getInt()});
+        }
+        return section;
+    }
+
+    // Aplica los deltas válidos y corta el archivo en el primero dañado o incompleto
+    private static void replayLog(Path path, Map<String, int[]> totals, CRC32 crc) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        int valid = 0;
+        while (data.remaining() >= 2) {
+            int start = data.position();
+            int nameLength = Short.toUnsignedInt(data.getShort());
+            if (data.remaining() < nameLength + VALUES_BYTES + CRC_BYTES) break;
+
+            crc.reset();
+            crc.update(data.array(), start, 2 + nameLength + VALUES_BYTES);
+            String name = new String(data.array(), start + 2, nameLength, StandardCharsets.UTF_8);
+            data.position(start + 2 + nameLength);
+            int kills = data.getInt();
+            int deaths = data.getInt();
+            int damage = data.getInt();
+            if (data.getInt() != (int) crc.getValue()) break;
+
+            int[] values = totals.computeIfAbsent(name, k -> new int[3]);
+            values[0] += kills;
+            values[1] += deaths;
+            values[2] += damage;
+            valid = data.position();
+        }
+
+        if (valid < data.limit()) {
+            GameLog.warn("Registro de estadísticas dañado en " + path, ", se descarta desde el byte " + valid);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+    }
+
+    private static Path walPath(Path directory, long generation) {
+        return directory.resolve(String.format("players-%06d.wal", generation));
+    }
+
+    private static long generationOf(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith("players-") || !name.endsWith(".wal")) return -1;
+        try {
+            return Long.parseLong(name.substring(8, name.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Escribe lo pendiente y deja una foto final; el próximo arranque no relee deltas
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        pending.add(CLOSE);
+        try {
+            writer.join();
+            wal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            GameLog.error("No se pudo cerrar el registro de estadísticas: ", e.getMessage());
+        }
+    }
+}
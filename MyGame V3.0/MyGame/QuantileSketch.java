@@ -0,0 +1,126 @@
+// QuantileSketch.java - Percentiles aproximados con error relativo acotado y memoria fija
+import java.io.*;
+import java.util.Arrays;
+
+// Cubetas logarítmicas: el valor v cae en la cubeta ceil(log(v) / log(gamma)), así que
+// cualquier percentil se devuelve con error relativo menor que la precisión elegida.
+// Con 1% y valores long no hacen falta más de ~2200 cubetas, sin importar cuántos valores
+final class QuantileSketch {
+    static final double DEFAULT_ACCURACY = 0.01;
+
+    private final double accuracy;
+    private final double gamma;
+    private final double logGamma;
+    private long[] counts = new long[0];
+    private long zeroCount;
+    private long count;
+
+    QuantileSketch() {
+        this(DEFAULT_ACCURACY);
+    }
+
+    QuantileSketch(double accuracy) {
+        if (accuracy <= 0 || accuracy >= 1) {
+            throw new IllegalArgumentException("Precisión fuera de rango: " + accuracy);
+        }
+        this.accuracy = accuracy;
+        this.gamma = (1 + accuracy) / (1 - accuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    // Los valores negativos cuentan como cero: duraciones y daños no los tienen
+    synchronized void add(long value) {
+        count++;
+        if (value <= 0) {
+            zeroCount++;
+            return;
+        }
+        int index = (int) Math.ceil(Math.log(value) / logGamma);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+        }
+        counts[index]++;
+    }
+
+    // Solo combina bocetos con la misma precisión: las cubetas deben coincidir
+    void merge(QuantileSketch other) {
+        long[] otherCounts;
+        long otherZeros, otherCount;
+        synchronized (other) {
+            otherCounts = other.counts.clone();
+            otherZeros = other.zeroCount;
+            otherCount = other.count;
+        }
+        if (other.accuracy != accuracy) {
+            throw new IllegalArgumentException("Precisiones distintas: " + accuracy + " y " + other.accuracy);
+        }
+        synchronized (this) {
+            if (otherCounts.length > counts.length) {
+                counts = Arrays.copyOf(counts, otherCounts.length);
+            }
+            for (int i = 0; i < otherCounts.length; i++) {
+                counts[i] += otherCounts[i];
+            }
+            zeroCount += otherZeros;
+            count += otherCount;
+        }
+    }
+
+    synchronized long getCount() {
+        return count;
+    }
+
+    // q entre 0 y 1; NaN si el boceto está vacío
+    synchronized double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Cuantil fuera de rango: " + q);
+        }
+        if (count == 0) return Double.NaN;
+
+        long rank = (long) (q * (count - 1));
+        long seen = zeroCount;
+        if (rank < seen) return 0.0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (rank < seen) {
+                // Punto medio relativo de la cubeta (gamma^(i-1), gamma^i]
+                return 2 * Math.pow(gamma, i) / (gamma + 1);
+            }
+        }
+        return 2 * Math.pow(gamma, counts.length - 1) / (gamma + 1);
+    }
+
+    // Formato para combinar bocetos de otros servidores: precisión, ceros y cubetas no vacías
+    synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeDouble(accuracy);
+        out.writeLong(zeroCount);
+        int used = (int) Arrays.stream(counts).filter(c -> c > 0).count();
+        out.writeInt(used);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                out.writeInt(i);
+                out.writeLong(counts[i]);
+            }
+        }
+    }
+
+    static QuantileSketch readFrom(DataInput in) throws IOException {
+        QuantileSketch sketch = new QuantileSketch(in.readDouble());
+        sketch.zeroCount = in.readLong();
+        sketch.count = sketch.zeroCount;
+        int used = in.readInt();
+        for (int i = 0; i < used; i++) {
+            int index = in.readInt();
+            long bucketCount = in.readLong();
+            if (index < 0 || bucketCount < 0 || index > 1 << 16) {
+                throw new IOException("Cubeta inválida en el boceto: " + index);
+            }
+            if (index >= sketch.counts.length) {
+                sketch.counts = Arrays.copyOf(sketch.counts, index + 1);
+            }
+            sketch.counts[index] += bucketCount;
+            sketch.count += bucketCount;
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,220 @@
+// RivalryIndex.java - Enfrentamientos por pareja de jugadores en una tabla de claves long
+import java.util.*;
+
+// Cada pareja es una clave long (id menor << 32 | id mayor) en una tabla de
+// direccionamiento abierto; sus totales viven en arreglos paralelos por casilla.
+// Registrar una batalla, el cara a cara y la némesis de un jugador son O(1)
+final class RivalryIndex {
+    private static final long EMPTY = -1L;
+
+    // Totales de una pareja; player1 es el primero en orden alfabético
+    record Rivalry(String player1, String player2, long matches, long wins1, long wins2,
+                   long damage1, long damage2, long lastMatchMillis) {
+
+        String label() {
+            return player1 + " vs " + player2;
+        }
+
+        long winsOf(String player) {
+            return player.equals(player1) ? wins1 : player.equals(player2) ? wins2 : 0;
+        }
+    }
+
+    // Ids propios del índice: así se combinan índices construidos por separado
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[16];
+    // Por jugador: quién le ganó más veces y cuántas
+    private int[] nemesis = new int[16];
+    private long[] nemesisWins = new long[16];
+
+    private long[] keys = newKeys(64);
+    private long[] matches = new long[64];
+    private long[] wins1 = new long[64];
+    private long[] wins2 = new long[64];
+    private long[] damage1 = new long[64];
+    private long[] damage2 = new long[64];
+    private long[] lastMatch = new long[64];
+    private int size = 0;
+
+    synchronized void record(String winner, String loser, int winnerDamage, int loserDamage, long epochMillis) {
+        int w = idOf(winner);
+        int l = idOf(loser);
+        int slot = slotFor(w, l);
+        matches[slot]++;
+        lastMatch[slot] = Math.max(lastMatch[slot], epochMillis);
+        if (w <= l) {
+            wins1[slot]++;
+            damage1[slot] += winnerDamage;
+            damage2[slot] += loserDamage;
+        } else {
+            wins2[slot]++;
+            damage2[slot] += winnerDamage;
+            damage1[slot] += loserDamage;
+        }
+        updateNemesis(w, l, slot);
+    }
+
+    // Suma otro índice; sus ids se traducen por nombre
+    void merge(RivalryIndex other) {
+        List<Rivalry> added = other.all();
+        synchronized (this) {
+            for (Rivalry rivalry : added) {
+                int a = idOf(rivalry.player1());
+                int b = idOf(rivalry.player2());
+                int slot = slotFor(a, b);
+                // wins1 y damage1 de la casilla son del jugador de id menor
+                boolean sameOrder = a <= b;
+                matches[slot] += rivalry.matches();
+                wins1[slot] += sameOrder ? rivalry.wins1() : rivalry.wins2();
+                wins2[slot] += sameOrder ? rivalry.wins2() : rivalry.wins1();
+                damage1[slot] += sameOrder ? rivalry.damage1() : rivalry.damage2();
+                damage2[slot] += sameOrder ? rivalry.damage2() : rivalry.damage1();
+                lastMatch[slot] = Math.max(lastMatch[slot], rivalry.lastMatchMillis());
+                updateNemesis(a, b, slot);
+                updateNemesis(b, a, slot);
+            }
+        }
+    }
+
+    synchronized Optional<Rivalry> headToHead(String player1, String player2) {
+        Integer a = ids.get(player1);
+        Integer b = ids.get(player2);
+        if (a == null || b == null) return Optional.empty();
+        int slot = find(key(a, b));
+        return slot < 0 ? Optional.empty() : Optional.of(rivalryAt(slot));
+    }
+
+    // La pareja en la que el rival le ganó más veces al jugador
+    synchronized Optional<Rivalry> nemesisOf(String player) {
+        Integer id = ids.get(player);
+        if (id == null || nemesisWins[id] == 0) return Optional.empty();
+        return Optional.of(rivalryAt(find(key(id, nemesis[id]))));
+    }
+
+    // Parejas con al menos minMatches batallas, de más a menos; a igualdad, por etiqueta
+    List<Rivalry> top(int limit, long minMatches) {
+        List<Rivalry> result = all();
+        result.removeIf(rivalry -> rivalry.matches() < minMatches);
+        result.sort(Comparator.comparingLong(Rivalry::matches).reversed()
+            .thenComparing(Rivalry::label));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    private synchronized List<Rivalry> all() {
+        List<Rivalry> result = new ArrayList<>(size);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                result.add(rivalryAt(slot));
+            }
+        }
+        return result;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void updateNemesis(int winner, int loser, int slot) {
+        long wins = winner <= loser ? wins1[slot] : wins2[slot];
+        // Los totales solo crecen: comparar con el máximo guardado basta para mantenerlo
+        if (wins > nemesisWins[loser]) {
+            nemesisWins[loser] = wins;
+            nemesis[loser] = winner;
+        }
+    }
+
+    // En la tabla el primero es el de id menor; hacia afuera, el de nombre menor
+    private Rivalry rivalryAt(int slot) {
+        long key = keys[slot];
+        String low = names[(int) (key >>> 32)];
+        String high = names[(int) key];
+        return low.compareTo(high) < 0
+            ? new Rivalry(low, high, matches[slot], wins1[slot], wins2[slot],
+                damage1[slot], damage2[slot], lastMatch[slot])
+            : new Rivalry(high, low, matches[slot], wins2[slot], wins1[slot],
+                damage2[slot], damage1[slot], lastMatch[slot]);
+    }
+
+    private int idOf(String name) {
+        Integer known = ids.get(name);
+        if (known != null) return known;
+
+        int id = ids.size();
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+            nemesis = Arrays.copyOf(nemesis, id * 2);
+            nemesisWins = Arrays.copyOf(nemesisWins, id * 2);
+        }
+        names[id] = name;
+        ids.put(name, id);
+        return id;
+    }
+
+    private static long key(int a, int b) {
+        return a <= b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    private static int hash(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key, mask); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return slot;
+            if (keys[slot] == EMPTY) return -1;
+        }
+    }
+
+    private int slotFor(int a, int b) {
+        long key = key(a, b);
+        int found = find(key);
+        if (found >= 0) return found;
+
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key, mask);
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys, oldMatches = matches, oldWins1 = wins1, oldWins2 = wins2;
+        long[] oldDamage1 = damage1, oldDamage2 = damage2, oldLast = lastMatch;
+        keys = newKeys(capacity);
+        matches = new long[capacity];
+        wins1 = new long[capacity];
+        wins2 = new long[capacity];
+        damage1 = new long[capacity];
+        damage2 = new long[capacity];
+        lastMatch = new long[capacity];
+
+        int mask = capacity - 1;
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (oldKeys[old] == EMPTY) continue;
+            int slot = hash(oldKeys[old], mask);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[old];
+            matches[slot] = oldMatches[old];
+            wins1[slot] = oldWins1[old];
+            wins2[slot] = oldWins2[old];
+            damage1[slot] = oldDamage1[old];
+            damage2[slot] = oldDamage2[old];
+            lastMatch[slot] = oldLast[old];
+        }
+    }
+
+    private static long[] newKeys(int capacity) {
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+}
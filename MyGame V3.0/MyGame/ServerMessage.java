@@ -0,0 +1,77 @@
+// ServerMessage.java - Mensajes del servidor con tipo: su forma de texto y su código binario
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+enum ServerMessage {
+    // Texto libre: todo lo que no tiene un código propio
+    TEXT(0, 0, true, (a, b, c, s) -> s),
+    HP(1, 1, false, (a, b, c, s) -> "HP:" + a),
+    HP_OPPONENT(2, 1, false, (a, b, c, s) -> "HP_OPPONENT:" + a),
+    ATTACKED_OPPONENT(3, 1, false, (a, b, c, s) -> "YOU_ATTACKED_OPPONENT:" + a),
+    ATTACKED_BY(4, 1, true, (a, b, c, s) -> "RECIBISTE_ATAQUE:" + a + " de " + s),
+    ATTACKED_ENEMY(5, 1, false, (a, b, c, s) -> "YOU_ATTACKED:Enemigo:" + a),
+    HEALED(6, 1, false, (a, b, c, s) -> "HEALED:" + a),
+    REVIVED(7, 1, false, (a, b, c, s) -> "REVIVED:" + a),
+    BATTLE_START(8, 0, true, (a, b, c, s) -> "BATTLE_START:" + s + " - ¡Que comience la batalla PVP!"),
+    CHALLENGE_REQUEST(9, 0, true, (a, b, c, s) -> "CHALLENGE_REQUEST:" + s),
+    BATTLE_END(10, 0, false, (a, b, c, s) -> "BATTLE_END"),
+    YOU_DIED(11, 0, false, (a, b, c, s) -> "YOU_DIED"),
+    YOU_WIN(12, 0, false, (a, b, c, s) -> "YOU_WIN"),
+    YOU_LOSE(13, 0, false, (a, b, c, s) -> "YOU_LOSE"),
+    OPPONENT_DIED(14, 0, false, (a, b, c, s) -> "TU_OPONENTE_HA_MUERTO"),
+    // Menú por plantilla: a = id de la plantilla, b y c = valores que rellena (%d)
+    MENU(15, 3, false, (a, b, c, s) -> fillTemplate(template(a), b, c)),
+    // Definición de plantilla: el codificador binario la manda una vez por conexión
+    MENU_DEFINE(16, 1, true, (a, b, c, s) -> "");
+
+    @FunctionalInterface
+    interface Renderer {
+        String render(int a, int b, int c, String s);
+    }
+
+    private static final ServerMessage[] BY_CODE = new ServerMessage[32];
+    // Plantillas de menú registradas al arrancar; el id es su posición
+    private static final List<String> templates = new CopyOnWriteArrayList<>();
+
+    static {
+        for (ServerMessage message : values()) {
+            BY_CODE[message.code] = message;
+        }
+    }
+
+    final int code;
+    // Enteros que lleva el mensaje (a, b, c en ese orden) y si lleva texto
+    final int ints;
+    final boolean hasText;
+    private final Renderer renderer;
+
+    ServerMessage(int code, int ints, boolean hasText, Renderer renderer) {
+        this.code = code;
+        this.ints = ints;
+        this.hasText = hasText;
+        this.renderer = renderer;
+    }
+
+    // Forma del protocolo de texto (una o varias líneas, sin el salto final)
+    String render(int a, int b, int c, String s) {
+        return renderer.render(a, b, c, s);
+    }
+
+    static Optional<ServerMessage> byCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? Optional.ofNullable(BY_CODE[code]) : Optional.empty();
+    }
+
+    static synchronized int registerTemplate(String text) {
+        templates.add(text);
+        return templates.size() - 1;
+    }
+
+    static String template(int id) {
+        return templates.get(id);
+    }
+
+    // Solo las plantillas con %d se formatean; el resto se envía tal cual
+    static String fillTemplate(String template, int b, int c) {
+        return template.contains("%d") ? template.formatted(b, c) : template;
+    }
+}
@@ -0,0 +1,38 @@
+// SessionExecutors.java - Fábrica de ejecutores para las sesiones del modo bloqueante
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+final class SessionExecutors {
+
+    private SessionExecutors() {}
+
+    // "thread" (un hilo de plataforma por sesión), "virtual", "pool" o "pool:N"
+    static Executor forName(String name) {
+        String kind = name.toLowerCase();
+        if (kind.equals("virtual")) {
+            return virtualThreads().orElseGet(() -> {
+                GameLog.warn("Hilos virtuales no disponibles en esta JVM, usando pool de hilos");
+                return Executors.newCachedThreadPool();
+            });
+        }
+        if (kind.equals("pool")) {
+            return Executors.newCachedThreadPool();
+        }
+        if (kind.startsWith("pool:")) {
+            return Executors.newFixedThreadPool(Integer.parseInt(kind.substring(5)));
+        }
+        return task -> new Thread(task).start();
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() existe desde Java 21; se busca por reflexión
+    // para que el servidor siga compilando y ejecutando en JVMs anteriores
+    static Optional<Executor> virtualThreads() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((Executor) factory.invoke(null));
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+// SlowConsumerCheck.java - Comprueba las políticas de cliente lento de OutboundQueue sin red
+// Uso: java SlowConsumerCheck
+import java.io.*;
+import java.util.*;
+
+public class SlowConsumerCheck {
+
+    public static void main(String[] args) {
+        long coalescedBefore = OutboundQueue.coalescedCount();
+        long droppedBefore = OutboundQueue.droppedCount();
+
+        // Como broadcast(): cada difusión crea su propio Shared con el mismo texto
+        OutboundQueue coalescing = new OutboundQueue(OutboundQueue.Policy.COALESCE, 1024);
+        broadcast(coalescing, 2000);
+        int accepted = drain(coalescing);
+        long coalesced = OutboundQueue.coalescedCount() - coalescedBefore;
+        long dropped = OutboundQueue.droppedCount() - droppedBefore;
+        System.out.printf("COALESCE: %d encoladas, %d fusionadas, %d descartadas%n", accepted, coalesced, dropped);
+        check(coalesced == 2000 - accepted, "las difusiones repetidas con la cola llena deben fusionarse");
+        check(dropped == 0, "una difusión ya pendiente no debe contarse como descartada");
+
+        // Con la cola vacía la misma difusión vuelve a encolarse
+        broadcast(coalescing, 1);
+        check(drain(coalescing) == 1, "tras vaciar la cola la difusión debe encolarse de nuevo");
+
+        droppedBefore = OutboundQueue.droppedCount();
+        coalescedBefore = OutboundQueue.coalescedCount();
+        OutboundQueue dropping = new OutboundQueue(OutboundQueue.Policy.DROP, 1024);
+        broadcast(dropping, 2000);
+        accepted = drain(dropping);
+        dropped = OutboundQueue.droppedCount() - droppedBefore;
+        System.out.printf("DROP: %d encoladas, %d descartadas%n", accepted, dropped);
+        check(dropped == 2000 - accepted, "DROP debe descartar lo que no cabe");
+        check(OutboundQueue.coalescedCount() == coalescedBefore, "DROP no fusiona");
+
+        // La salida propia del jugador no se descarta con ninguna política: si no cabe, se desconecta
+        long disconnectedBefore = OutboundQueue.disconnectedCount();
+        int template = ServerMessage.registerTemplate("Menú de prueba");
+        OutboundQueue menus = new OutboundQueue(OutboundQueue.Policy.DROP, 1024);
+        menus.setProtocol(WireProtocol.BINARY);
+        menus.append(ServerMessage.MENU, template, 0, 0, null);
+        check(menus.seal(), "un bloque propio que cabe se encola");
+        broadcast(menus, 2000);
+        List<String> shown = readMenus(menus);
+        System.out.printf("MENU antes de las difusiones: %s%n", shown);
+        check(shown.equals(List.of("Menú de prueba")), "el cliente debe recibir la plantilla antes que su menú");
+
+        broadcast(menus, 2000);
+        menus.append(ServerMessage.TEXT, 0, 0, 0, "Tu HP: " + "#".repeat(100));
+        check(!menus.seal(), "un bloque propio que no cabe desconecta al cliente");
+        check(menus.isClosed() && OutboundQueue.disconnectedCount() == disconnectedBefore + 1,
+            "la desconexión debe contarse");
+
+        System.out.println("OK");
+    }
+
+    // Decodifica lo encolado como lo haría GameClient y devuelve solo los menús
+    private static List<String> readMenus(OutboundQueue queue) {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        byte[] frame;
+        while ((frame = queue.poll()) != null) {
+            wire.writeBytes(frame);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(wire.toByteArray()));
+        Map<Integer, String> templates = new HashMap<>();
+        List<String> menus = new ArrayList<>();
+        try {
+            String line;
+            while ((line = WireProtocol.readFrame(in, templates)) != null) {
+                if (!line.equals("ENEMIES_HAVE_BEEN_RESET")) {
+                    menus.add(line);
+                }
+            }
+        } catch (EOFException end) {
+            // Fin de lo encolado
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return menus;
+    }
+
+    private static void broadcast(OutboundQueue queue, int times) {
+        for (int i = 0; i < times; i++) {
+            queue.offerShared(new WireProtocol.Shared(ServerMessage.TEXT, 0, "ENEMIES_HAVE_BEEN_RESET"));
+        }
+    }
+
+    // Devuelve cuántos bloques había en cola
+    private static int drain(OutboundQueue queue) {
+        int frames = 0;
+        while (queue.poll() != null) {
+            frames++;
+        }
+        return frames;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
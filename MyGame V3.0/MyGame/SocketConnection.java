@@ -0,0 +1,97 @@
+// SocketConnection.java - Conexión bloqueante clásica: un socket con su propio escritor
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class SocketConnection implements ClientConnection {
+    // Escritores compartidos: una conexión ocupa uno solo mientras tiene salida pendiente,
+    // así un socket atascado nunca bloquea al hilo que le envía mensajes
+    private static final Executor writers = SessionExecutors.virtualThreads()
+        .orElseGet(() -> Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "socket-writer");
+            thread.setDaemon(true);
+            return thread;
+        }));
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final OutboundQueue queue = new OutboundQueue();
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+
+    public SocketConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    @Override
+    public void send(ServerMessage message, int a, int b, int c, String s) {
+        queue.append(message, a, b, c, s);
+    }
+
+    @Override
+    public void setProtocol(WireProtocol protocol) {
+        queue.setProtocol(protocol);
+    }
+
+    @Override
+    public void sendShared(WireProtocol.Shared message) {
+        if (queue.offerShared(message)) {
+            scheduleWriter();
+        } else {
+            dropSlowConsumer();
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (queue.seal()) {
+            scheduleWriter();
+        } else {
+            dropSlowConsumer();
+        }
+    }
+
+    private void scheduleWriter() {
+        if (!queue.isEmpty() && writing.compareAndSet(false, true)) {
+            writers.execute(this::writeQueued);
+        }
+    }
+
+    // Vacía la cola en el socket; solo un escritor a la vez por conexión
+    private void writeQueued() {
+        try {
+            byte[] frame;
+            while ((frame = queue.poll()) != null) {
+                out.write(frame);
+            }
+            out.flush();
+        } catch (IOException e) {
+            close();
+            return;
+        } finally {
+            writing.set(false);
+        }
+        // Un productor pudo encolar justo antes de soltar la bandera
+        scheduleWriter();
+    }
+
+    // Cerrar el socket desbloquea la lectura: el hilo de la sesión hace la limpieza
+    private void dropSlowConsumer() {
+        GameLog.warn("Cliente lento desconectado: ", getRemoteAddress());
+        close();
+    }
+
+    @Override
+    public void close() {
+        queue.close();
+        if (!socket.isClosed()) {
+            try { socket.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return String.valueOf(socket.getRemoteSocketAddress());
+    }
+}
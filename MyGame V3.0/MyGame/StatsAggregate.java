@@ -0,0 +1,235 @@
+// StatsAggregate.java - Acumuladores de estadísticas actualizados en O(1) por cada resultado
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+final class StatsAggregate {
+
+    // Totales de un jugador: daño como ganador o perdedor, apariciones y victorias
+    static final class PlayerTotals {
+        private final AtomicLong damage = new AtomicLong();
+        private final AtomicLong matches = new AtomicLong();
+        private final AtomicLong wins = new AtomicLong();
+
+        long getDamage() { return damage.get(); }
+        long getMatches() { return matches.get(); }
+        long getWins() { return wins.get(); }
+
+        double getAverageDamage() {
+            long count = matches.get();
+            return count > 0 ? (double) damage.get() / count : 0.0;
+        }
+    }
+
+    // Totales de un arma, contando solo el daño de quien ganó con ella
+    static final class WeaponTotals {
+        private final AtomicLong winnerDamage = new AtomicLong();
+        private final AtomicLong wins = new AtomicLong();
+
+        long getWins() { return wins.get(); }
+
+        double getAverageWinnerDamage() {
+            long count = wins.get();
+            return count > 0 ? (double) winnerDamage.get() / count : 0.0;
+        }
+    }
+
+    private final AtomicLong matches = new AtomicLong();
+    private final AtomicLong surrenders = new AtomicLong();
+    private final AtomicLong durationSum = new AtomicLong();
+    // Ante empates se queda el primero registrado, igual que max/min sobre el historial
+    private final AtomicReference<MatchResult> longest = new AtomicReference<>();
+    private final AtomicReference<MatchResult> shortest = new AtomicReference<>();
+
+    private final Map<String, PlayerTotals> players = new ConcurrentHashMap<>();
+    private final Map<String, WeaponTotals> weapons = new ConcurrentHashMap<>();
+    private final RivalryIndex rivalries = new RivalryIndex();
+
+    // Distribuciones y conteos aproximados en memoria fija, combinables entre servidores
+    private final QuantileSketch durations = new QuantileSketch();
+    private final QuantileSketch damage = new QuantileSketch();
+    private final DistinctCounter distinctPlayers = new DistinctCounter();
+    private final DistinctCounter distinctRivalries = new DistinctCounter();
+
+    // Seguro desde cualquier hilo; cada resultado toca un número fijo de acumuladores
+    void add(MatchResult result) {
+        matches.incrementAndGet();
+        if (result.wasSurrender()) {
+            surrenders.incrementAndGet();
+        }
+        durationSum.addAndGet(result.getDurationMs());
+        longest.accumulateAndGet(result,
+            (current, next) -> current == null || next.getDurationMs() > current.getDurationMs() ? next : current);
+        shortest.accumulateAndGet(result,
+            (current, next) -> current == null || next.getDurationMs() < current.getDurationMs() ? next : current);
+
+        PlayerTotals winner = players.computeIfAbsent(result.getWinner(), k -> new PlayerTotals());
+        winner.damage.addAndGet(result.getWinnerDamageDealt());
+        winner.matches.incrementAndGet();
+        winner.wins.incrementAndGet();
+
+        PlayerTotals loser = players.computeIfAbsent(result.getLoser(), k -> new PlayerTotals());
+        loser.damage.addAndGet(result.getLoserDamageDealt());
+        loser.matches.incrementAndGet();
+
+        WeaponTotals weapon = weapons.computeIfAbsent(result.getWinnerWeapon(), k -> new WeaponTotals());
+        weapon.winnerDamage.addAndGet(result.getWinnerDamageDealt());
+        weapon.wins.incrementAndGet();
+
+        long epochMillis = result.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        rivalries.record(result.getWinner(), result.getLoser(),
+            result.getWinnerDamageDealt(), result.getLoserDamageDealt(), epochMillis);
+
+        sketch(result.getWinner(), result.getLoser(), result.getDurationMs(),
+            result.getWinnerDamageDealt(), result.getLoserDamageDealt());
+    }
+
+    private void sketch(String winner, String loser, long durationMs, int winnerDamage, int loserDamage) {
+        durations.add(durationMs);
+        damage.add(winnerDamage);
+        damage.add(loserDamage);
+        distinctPlayers.add(winner);
+        distinctPlayers.add(loser);
+        distinctRivalries.addPair(winner, loser);
+    }
+
+    // Mismo efecto que add() por cada fila, leyendo las columnas sin crear MatchResult
+    // salvo para una nueva batalla extrema
+    void addRows(MatchStore.View columns, int from, int to) {
+        for (int row = from; row < to; row++) {
+            long duration = columns.durationMs(row);
+            matches.incrementAndGet();
+            if (columns.surrender(row)) {
+                surrenders.incrementAndGet();
+            }
+            durationSum.addAndGet(duration);
+            MatchResult current = longest.get();
+            if (current == null || duration > current.getDurationMs()) {
+                longest.accumulateAndGet(columns.get(row),
+                    (held, next) -> held == null || next.getDurationMs() > held.getDurationMs() ? next : held);
+            }
+            current = shortest.get();
+            if (current == null || duration < current.getDurationMs()) {
+                shortest.accumulateAndGet(columns.get(row),
+                    (held, next) -> held == null || next.getDurationMs() < held.getDurationMs() ? next : held);
+            }
+
+            String winnerName = columns.name(columns.winnerId(row));
+            String loserName = columns.name(columns.loserId(row));
+            int winnerDamage = columns.winnerDamage(row);
+
+            PlayerTotals winner = players.computeIfAbsent(winnerName, k -> new PlayerTotals());
+            winner.damage.addAndGet(winnerDamage);
+            winner.matches.incrementAndGet();
+            winner.wins.incrementAndGet();
+
+            PlayerTotals loser = players.computeIfAbsent(loserName, k -> new PlayerTotals());
+            loser.damage.addAndGet(columns.loserDamage(row));
+            loser.matches.incrementAndGet();
+
+            WeaponTotals weapon = weapons.computeIfAbsent(columns.name(columns.winnerWeaponId(row)),
+                k -> new WeaponTotals());
+            weapon.winnerDamage.addAndGet(winnerDamage);
+            weapon.wins.incrementAndGet();
+
+            rivalries.record(winnerName, loserName, winnerDamage, columns.loserDamage(row),
+                columns.timestampMillis(row));
+
+            sketch(winnerName, loserName, duration, winnerDamage, columns.loserDamage(row));
+        }
+    }
+
+    // Suma otro agregado cuyas batallas van después de las de este
+    void merge(StatsAggregate later) {
+        matches.addAndGet(later.matches.get());
+        surrenders.addAndGet(later.surrenders.get());
+        durationSum.addAndGet(later.durationSum.get());
+        later.getLongest().ifPresent(result -> longest.accumulateAndGet(result,
+            (current, next) -> current == null || next.getDurationMs() > current.getDurationMs() ? next : current));
+        later.getShortest().ifPresent(result -> shortest.accumulateAndGet(result,
+            (current, next) -> current == null || next.getDurationMs() < current.getDurationMs() ? next : current));
+
+        later.players.forEach((name, totals) -> {
+            PlayerTotals target = players.computeIfAbsent(name, k -> new PlayerTotals());
+            target.damage.addAndGet(totals.damage.get());
+            target.matches.addAndGet(totals.matches.get());
+            target.wins.addAndGet(totals.wins.get());
+        });
+        later.weapons.forEach((name, totals) -> {
+            WeaponTotals target = weapons.computeIfAbsent(name, k -> new WeaponTotals());
+            target.winnerDamage.addAndGet(totals.winnerDamage.get());
+            target.wins.addAndGet(totals.wins.get());
+        });
+        rivalries.merge(later.rivalries);
+        durations.merge(later.durations);
+        damage.merge(later.damage);
+        distinctPlayers.merge(later.distinctPlayers);
+        distinctRivalries.merge(later.distinctRivalries);
+    }
+
+    // Todas las secciones de los reportes en una sola pasada por las columnas,
+    // repartida en tramos que se acumulan por separado y se combinan en orden
+    static StatsAggregate fold(MatchStore.View columns) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        // Dos tramos por hilo: más tramos solo agregan combinaciones de mapas, y con un
+        // solo hilo la pasada queda secuencial
+        int parallelism = pool.getParallelism();
+        int chunks = parallelism > 1 ? parallelism * 2 : 1;
+        int rows = columns.size() - columns.first();
+        int threshold = Math.max(Fold.MIN_ROWS, rows / chunks + 1);
+        return pool.invoke(new Fold(columns, columns.first(), columns.size(), threshold));
+    }
+
+    private static final class Fold extends RecursiveTask<StatsAggregate> {
+        private static final long serialVersionUID = 1L;
+        private static final int MIN_ROWS = 16 * 1024;
+
+        private final MatchStore.View columns;
+        private final int from, to, threshold;
+
+        Fold(MatchStore.View columns, int from, int to, int threshold) {
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected StatsAggregate compute() {
+            if (to - from <= threshold) {
+                StatsAggregate partial = new StatsAggregate();
+                partial.addRows(columns, from, to);
+                return partial;
+            }
+            int middle = (from + to) >>> 1;
+            Fold right = new Fold(columns, middle, to, threshold);
+            right.fork();
+            StatsAggregate left = new Fold(columns, from, middle, threshold).compute();
+            left.merge(right.join());
+            return left;
+        }
+    }
+
+    long getMatches() { return matches.get(); }
+    long getSurrenders() { return surrenders.get(); }
+
+    double getAverageDurationMs() {
+        long count = matches.get();
+        return count > 0 ? (double) durationSum.get() / count : 0.0;
+    }
+
+    Optional<MatchResult> getLongest() { return Optional.ofNullable(longest.get()); }
+    Optional<MatchResult> getShortest() { return Optional.ofNullable(shortest.get()); }
+
+    // Vistas de solo lectura: su tamaño depende de jugadores y armas, no de batallas
+    Map<String, PlayerTotals> getPlayers() { return Collections.unmodifiableMap(players); }
+    Map<String, WeaponTotals> getWeapons() { return Collections.unmodifiableMap(weapons); }
+
+    QuantileSketch getDurations() { return durations; }
+    QuantileSketch getDamage() { return damage; }
+    DistinctCounter getDistinctPlayers() { return distinctPlayers; }
+    DistinctCounter getDistinctRivalries() { return distinctRivalries; }
+
+    RivalryIndex getRivalries() { return rivalries; }
+}
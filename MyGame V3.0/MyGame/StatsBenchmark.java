@@ -0,0 +1,92 @@
+// StatsBenchmark.java - Mide la reconstrucción de estadísticas sobre un historial grande
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.*;
+
+// Uso: java StatsBenchmark [batallas] [repeticiones]
+public class StatsBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        MatchStore store = new MatchStore();
+        Random random = new Random(42);
+        String[] weapons = {"yuca", "machete", "hueso", "cebollin"};
+        for (int i = 0; i < size; i++) {
+            int winner = random.nextInt(1000);
+            int loser = (winner + 1 + random.nextInt(999)) % 1000;
+            store.append(new MatchResult("jugador" + winner, "jugador" + loser,
+                random.nextInt(300), random.nextInt(300), 5_000 + random.nextInt(600_000),
+                weapons[random.nextInt(weapons.length)], weapons[random.nextInt(weapons.length)],
+                random.nextInt(10) == 0));
+        }
+        MatchStore.View columns = store.snapshot();
+        System.out.printf("Historial: %d batallas, %d hilos en el pool%n", columns.size(),
+            ForkJoinPool.commonPool().getParallelism());
+
+        String expected = describe(sequential(columns));
+        if (!expected.equals(describe(StatsAggregate.fold(columns)))) {
+            throw new IllegalStateException("La pasada paralela no coincide con la secuencial");
+        }
+
+        measure("Ocho recorridos con streams", rounds, () -> eightPasses(columns.asList()));
+        measure("Una pasada secuencial", rounds, () -> sequential(columns));
+        measure("Una pasada fork/join", rounds, () -> StatsAggregate.fold(columns));
+    }
+
+    private static StatsAggregate sequential(MatchStore.View columns) {
+        StatsAggregate aggregate = new StatsAggregate();
+        aggregate.addRows(columns, 0, columns.size());
+        return aggregate;
+    }
+
+    // Lo que hacía generateFullReport antes de los acumuladores: una pasada por sección
+    private static Object eightPasses(List<MatchResult> history) {
+        List<Object> sections = new ArrayList<>();
+        sections.add(history.stream().collect(Collectors.groupingBy(MatchResult::getWinner,
+            Collectors.summingInt(MatchResult::getWinnerDamageDealt))));
+        sections.add(history.stream().mapToLong(MatchResult::getDurationMs).average());
+        sections.add(history.stream().flatMap(m -> Stream.of(
+                Map.entry(m.getWinner(), m.getWinnerDamageDealt()),
+                Map.entry(m.getLoser(), m.getLoserDamageDealt())))
+            .collect(Collectors.groupingBy(Map.Entry::getKey, Collectors.averagingInt(Map.Entry::getValue))));
+        sections.add(history.parallelStream().collect(Collectors.groupingBy(MatchResult::getWinner,
+            Collectors.counting())));
+        sections.add(history.stream().collect(Collectors.groupingBy(MatchResult::getWinnerWeapon,
+            Collectors.averagingInt(MatchResult::getWinnerDamageDealt))));
+        sections.add(history.stream().filter(MatchResult::wasSurrender).count());
+        sections.add(history.stream().max(Comparator.comparingLong(MatchResult::getDurationMs)));
+        sections.add(history.stream().min(Comparator.comparingLong(MatchResult::getDurationMs)));
+        sections.add(history.stream().collect(Collectors.groupingBy(
+            m -> m.getWinner().compareTo(m.getLoser()) < 0
+                ? m.getWinner() + " vs " + m.getLoser()
+                : m.getLoser() + " vs " + m.getWinner(),
+            Collectors.counting())));
+        return sections;
+    }
+
+    private static String describe(StatsAggregate aggregate) {
+        StringBuilder text = new StringBuilder();
+        text.append(aggregate.getMatches()).append('/').append(aggregate.getSurrenders())
+            .append('/').append(aggregate.getAverageDurationMs())
+            .append('/').append(aggregate.getLongest()).append('/').append(aggregate.getShortest());
+        new TreeMap<>(aggregate.getPlayers()).forEach((name, totals) -> text.append(name)
+            .append(totals.getDamage()).append(',').append(totals.getMatches()).append(',').append(totals.getWins()));
+        new TreeMap<>(aggregate.getWeapons()).forEach((name, totals) -> text.append(name)
+            .append(totals.getWins()).append(',').append(totals.getAverageWinnerDamage()));
+        text.append(aggregate.getRivalries().top(Integer.MAX_VALUE, 1));
+        return text.toString();
+    }
+
+    private static void measure(String label, int rounds, Runnable task) {
+        task.run();   // calentamiento
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-30s %8.1f ms%n", label, best / 1_000_000.0);
+    }
+}
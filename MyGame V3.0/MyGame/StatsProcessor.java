@@ -1,193 +1,401 @@
 // StatsProcessor.java - Procesador de estadísticas con programación funcional
+import java.io.PrintStream;
+import java.time.*;
 import java.util.*;
 import java.util.stream.*;
 
 public class StatsProcessor {
-    private final List<MatchResult> matchHistory;
+    // Cada cuántas filas reproducidas se revisa la retención
+    private static final int REPLAY_EVICT_ROWS = 4096;
+
+    // Historial concurrente en columnas: las salas lo alimentan sin bloquearse y
+    // cada lectura trabaja sobre una instantánea que no cambia mientras la recorre.
+    // Con retención, lo más viejo queda solo en sus resúmenes (MatchRollups)
+    private final MatchStore matchHistory;
+    // Acumuladores por jugador, arma y globales de todo el historial, retenido o no,
+    // al día con cada resultado. Solo un seguidor atrasado los reemplaza
+    private volatile StatsAggregate aggregate = new StatsAggregate();
+    // Las mismas métricas por minuto, para consultar solo lo reciente
+    private final StatsWindows windows = new StatsWindows();
+    // Registro persistente opcional; se conecta después de reproducirlo al arrancar
+    private volatile MatchJournal journal;
+    // Solo en seguidores: filas del historial ya acumuladas
+    private int applied = 0;
+    // Edad máxima de las filas en columnas; null = se guardan todas
+    private volatile Duration retention;
 
     public StatsProcessor() {
-        this.matchHistory = new ArrayList<>();
+        this.matchHistory = new MatchStore();
     }
 
     public StatsProcessor(List<MatchResult> initialResults) {
-        this.matchHistory = new ArrayList<>(initialResults);
+        this();
+        initialResults.forEach(this::record);
+    }
+
+    private StatsProcessor(MatchStore shared) {
+        this.matchHistory = shared;
     }
 
-    // Agregar resultado de batalla
+    // Copia para consultas pesadas: lee las mismas columnas pero con acumuladores
+    // propios, que cambian solo en catchUp(). No debe recibir resultados propios
+    StatsProcessor follower() {
+        return new StatsProcessor(matchHistory);
+    }
+
+    // Acumula las filas publicadas desde la última llamada y devuelve cuántas lleva;
+    // nunca toca los acumuladores que actualizan las salas. Si se retiraron filas que
+    // aún no había visto, rehace los acumuladores desde los resúmenes y lo retenido
+    synchronized int catchUp() {
+        MatchStore.View columns = matchHistory.snapshot();
+        if (applied > 0 && applied >= columns.first()) {
+            aggregate.addRows(columns, applied, columns.size());
+            windows.addRows(columns, applied, columns.size());
+            applied = columns.size();
+            return applied;
+        }
+
+        matchHistory.withRollups((rollups, retained) -> {
+            StatsAggregate rebuilt = rollups.copyTotal();
+            rebuilt.merge(StatsAggregate.fold(retained));
+            aggregate = rebuilt;
+            // Lo retirado es más viejo que la retención mínima de un día: no está en ninguna ventana
+            windows.addRows(retained, Math.max(applied, retained.first()), retained.size());
+            applied = retained.size();
+        });
+        return applied;
+    }
+
+    // Agregar resultado de batalla (seguro desde cualquier hilo)
     public void addMatchResult(MatchResult result) {
-        matchHistory.add(result);
-        System.out.println("Resultado registrado: " + result);
+        record(result);
+        MatchJournal target = journal;
+        if (target != null) {
+            target.append(result);
+        }
+        GameLog.info("Resultado registrado: ", result);
+    }
+
+    // Resultado leído del registro persistente: solo se guarda en columnas y se
+    // acumula de una vez en persistTo(), que marca el fin de la reproducción. Con
+    // retención, lo vencido se va resumiendo durante la reproducción: la memoria no
+    // crece con todo el historial ni siquiera al arrancar
+    void replay(MatchResult result) {
+        if ((matchHistory.append(result) + 1) % REPLAY_EVICT_ROWS == 0) {
+            evictExpired();
+        }
+    }
+
+    // Bloque importado de un archivo (MatchArchive): su agregado, calculado aparte, se suma
+    // a los acumuladores y sus filas a las ventanas, pero no se guardan en columnas; así
+    // importar un archivo no pide memoria según su tamaño. Los bloques deben llegar en el
+    // orden del archivo y no pasan por el registro persistente
+    void importBlock(MatchStore.View block, StatsAggregate partial) {
+        aggregate.merge(partial);
+        windows.addRows(block, 0, block.size());
+    }
+
+    // Los acumuladores arrancan con lo resumido durante la reproducción y lo retenido
+    void persistTo(MatchJournal journal) {
+        matchHistory.withRollups((rollups, replayed) -> {
+            rollups.mergeInto(aggregate);
+            aggregate.merge(StatsAggregate.fold(replayed));
+            windows.addRows(replayed, replayed.first(), replayed.size());
+        });
+        this.journal = journal;
+    }
+
+    // Desde aquí las batallas de más de maxAge salen de las columnas y quedan resumidas
+    // por día, jugador y arma; se fija antes de reproducir el registro persistente
+    void retainFor(Duration maxAge) {
+        this.retention = maxAge;
+    }
+
+    // Retira lo que pasó la retención. Los reportes no cambian: salen de acumuladores
+    // de todo el historial. Devuelve cuántas batallas se retiraron
+    int evictExpired() {
+        Duration maxAge = retention;
+        if (maxAge == null) return 0;
+        return matchHistory.evictBefore(System.currentTimeMillis() - maxAge.toMillis());
+    }
+
+    private void record(MatchResult result) {
+        matchHistory.append(result);
+        aggregate.add(result);
+        windows.add(result);
     }
 
     // === ANÁLISIS FUNCIONALES ===
+    // Todos se sirven de los acumuladores: su costo no crece con el historial
 
     // 1. Top N jugadores por daño total
     public void showTopPlayersByDamage(int topN) {
-        System.out.println("\n=== TOP " + topN + " JUGADORES POR DAÑO TOTAL ===");
+        showTopPlayersByDamage(System.out, topN);
+    }
+
+    public void showTopPlayersByDamage(PrintStream out, int topN) {
+        out.println("\n=== TOP " + topN + " JUGADORES POR DAÑO TOTAL ===");
         
-        getTotalDamageByPlayer().entrySet().stream()
-            .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+        aggregate.getPlayers().entrySet().stream()
+            .sorted(Comparator.comparingLong(
+                (Map.Entry<String, StatsAggregate.PlayerTotals> entry) -> entry.getValue().getDamage()).reversed())
             .limit(topN)
-            .forEach(entry -> System.out.printf("%-15s: %d puntos de daño\n", 
-                entry.getKey(), entry.getValue()));
+            .forEach(entry -> out.printf("%-15s: %d puntos de daño\n", 
+                entry.getKey(), entry.getValue().getDamage()));
     }
 
     // 2. Promedio de duración de batallas
     public void showAverageDuration() {
-        double avgMs = matchHistory.stream()
-            .collect(Collectors.averagingLong(MatchResult::getDurationMs));
-        
-        double avgSeconds = avgMs / 1000.0;
-        System.out.printf("\nDuración promedio de batallas: %.2f segundos\n", avgSeconds);
+        showAverageDuration(System.out);
+    }
+
+    public void showAverageDuration(PrintStream out) {
+        double avgSeconds = aggregate.getAverageDurationMs() / 1000.0;
+        out.printf("\nDuración promedio de batallas: %.2f segundos\n", avgSeconds);
     }
 
     // 3. Jugadores con daño promedio superior a un umbral
     public void showPlayersAboveAverageDamage(int threshold) {
-        System.out.println("\n=== JUGADORES CON DAÑO PROMEDIO > " + threshold + " ===");
+        showPlayersAboveAverageDamage(System.out, threshold);
+    }
+
+    public void showPlayersAboveAverageDamage(PrintStream out, int threshold) {
+        out.println("\n=== JUGADORES CON DAÑO PROMEDIO > " + threshold + " ===");
         
-        getAverageDamageByPlayer().entrySet().stream()
-            .filter(entry -> entry.getValue() > threshold)
-            .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
-            .forEach(entry -> System.out.printf("%-15s: %.1f de daño promedio\n", 
-                entry.getKey(), entry.getValue()));
+        aggregate.getPlayers().entrySet().stream()
+            .filter(entry -> entry.getValue().getAverageDamage() > threshold)
+            .sorted(Comparator.comparingDouble(
+                (Map.Entry<String, StatsAggregate.PlayerTotals> entry) -> entry.getValue().getAverageDamage()).reversed())
+            .forEach(entry -> out.printf("%-15s: %.1f de daño promedio\n", 
+                entry.getKey(), entry.getValue().getAverageDamage()));
     }
 
-    // 4. Conteo de victorias por jugador (usando parallelStream)
+    // 4. Conteo de victorias por jugador
     public void showVictoriesCount() {
-        System.out.println("\n=== VICTORIAS POR JUGADOR ===");
-        
-        Map<String, Long> victories = matchHistory.parallelStream()
-            .collect(Collectors.groupingBy(
-                MatchResult::getWinner, 
-                Collectors.counting()
-            ));
+        showVictoriesCount(System.out);
+    }
+
+    public void showVictoriesCount(PrintStream out) {
+        out.println("\n=== VICTORIAS POR JUGADOR ===");
         
-        victories.entrySet().stream()
-            .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
-            .forEach(entry -> System.out.printf("%-15s: %d victorias\n", 
-                entry.getKey(), entry.getValue()));
+        aggregate.getPlayers().entrySet().stream()
+            .filter(entry -> entry.getValue().getWins() > 0)
+            .sorted(Comparator.comparingLong(
+                (Map.Entry<String, StatsAggregate.PlayerTotals> entry) -> entry.getValue().getWins()).reversed())
+            .forEach(entry -> out.printf("%-15s: %d victorias\n", 
+                entry.getKey(), entry.getValue().getWins()));
     }
 
     // 5. Arma más efectiva (mayor daño promedio)
     public void showMostEffectiveWeapon() {
-        System.out.println("\n=== ARMA MÁS EFECTIVA ===");
+        showMostEffectiveWeapon(System.out);
+    }
+
+    public void showMostEffectiveWeapon(PrintStream out) {
+        out.println("\n=== ARMA MÁS EFECTIVA ===");
         
-        matchHistory.stream()
-            .collect(Collectors.groupingBy(
-                MatchResult::getWinnerWeapon,
-                Collectors.averagingInt(MatchResult::getWinnerDamageDealt)
-            ))
-            .entrySet().stream()
-            .max(Map.Entry.comparingByValue())
+        aggregate.getWeapons().entrySet().stream()
+            .max(Comparator.comparingDouble(entry -> entry.getValue().getAverageWinnerDamage()))
             .ifPresentOrElse(
-                entry -> System.out.printf("%s con %.1f de daño promedio\n", 
-                    entry.getKey(), entry.getValue()),
-                () -> System.out.println("No hay datos de armas")
+                entry -> out.printf("%s con %.1f de daño promedio\n", 
+                    entry.getKey(), entry.getValue().getAverageWinnerDamage()),
+                () -> out.println("No hay datos de armas")
             );
     }
 
     // 6. Tasa de rendiciones
     public void showSurrenderRate() {
-        long totalMatches = matchHistory.size();
-        long surrenders = matchHistory.stream()
-            .filter(MatchResult::wasSurrender)
-            .count();
+        showSurrenderRate(System.out);
+    }
+
+    public void showSurrenderRate(PrintStream out) {
+        long totalMatches = aggregate.getMatches();
+        long surrenders = aggregate.getSurrenders();
         
         double rate = totalMatches > 0 ? (surrenders * 100.0 / totalMatches) : 0;
-        System.out.printf("\nTasa de rendiciones: %.1f%% (%d de %d batallas)\n", 
+        out.printf("\nTasa de rendiciones: %.1f%% (%d de %d batallas)\n", 
             rate, surrenders, totalMatches);
     }
 
     // 7. Batalla más larga y más corta
     public void showDurationExtremes() {
-        System.out.println("\n=== BATALLAS MÁS LARGA Y MÁS CORTA ===");
+        showDurationExtremes(System.out);
+    }
+
+    public void showDurationExtremes(PrintStream out) {
+        out.println("\n=== BATALLAS MÁS LARGA Y MÁS CORTA ===");
         
-        matchHistory.stream()
-            .max(Comparator.comparingLong(MatchResult::getDurationMs))
-            .ifPresent(longest -> System.out.printf("Más larga: %.1fs - %s vs %s\n",
+        aggregate.getLongest()
+            .ifPresent(longest -> out.printf("Más larga: %.1fs - %s vs %s\n",
                 longest.getDurationSeconds(), longest.getWinner(), longest.getLoser()));
         
-        matchHistory.stream()
-            .min(Comparator.comparingLong(MatchResult::getDurationMs))
-            .ifPresent(shortest -> System.out.printf("Más corta: %.1fs - %s vs %s\n",
+        aggregate.getShortest()
+            .ifPresent(shortest -> out.printf("Más corta: %.1fs - %s vs %s\n",
                 shortest.getDurationSeconds(), shortest.getWinner(), shortest.getLoser()));
     }
 
     // 8. Análisis de rivalidades (enfrentamientos entre mismos jugadores)
     public void showRivalries() {
-        System.out.println("\n=== RIVALIDADES (ENFRENTAMIENTOS REPETIDOS) ===");
+        showRivalries(System.out);
+    }
+
+    public void showRivalries(PrintStream out) {
+        out.println("\n=== RIVALIDADES (ENFRENTAMIENTOS REPETIDOS) ===");
         
-        matchHistory.stream()
-            .collect(Collectors.groupingBy(
-                match -> createRivalryKey(match.getWinner(), match.getLoser()),
-                Collectors.counting()
-            ))
-            .entrySet().stream()
-            .filter(entry -> entry.getValue() > 1)
-            .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
-            .forEach(entry -> System.out.printf("%s: %d batallas\n", 
+        aggregate.getRivalries().top(Integer.MAX_VALUE, 2)
+            .forEach(rivalry -> out.printf("%s: %d batallas\n", 
+                rivalry.label(), rivalry.matches()));
+    }
+
+    // Cara a cara entre dos jugadores, en O(1)
+    public void showHeadToHead(String player1, String player2) {
+        showHeadToHead(System.out, player1, player2);
+    }
+
+    public void showHeadToHead(PrintStream out, String player1, String player2) {
+        aggregate.getRivalries().headToHead(player1, player2)
+            .ifPresentOrElse(
+                rivalry -> out.printf("\n%s vs %s: %d-%d en %d batallas (daño %d-%d)\n",
+                    player1, player2, rivalry.winsOf(player1), rivalry.winsOf(player2), rivalry.matches(),
+                    player1.equals(rivalry.player1()) ? rivalry.damage1() : rivalry.damage2(),
+                    player1.equals(rivalry.player1()) ? rivalry.damage2() : rivalry.damage1()),
+                () -> out.printf("\n%s y %s no se han enfrentado\n", player1, player2));
+    }
+
+    // Rival que más veces venció al jugador
+    public void showNemesis(String player) {
+        showNemesis(System.out, player);
+    }
+
+    public void showNemesis(PrintStream out, String player) {
+        aggregate.getRivalries().nemesisOf(player)
+            .ifPresentOrElse(
+                rivalry -> {
+                    String rival = player.equals(rivalry.player1()) ? rivalry.player2() : rivalry.player1();
+                    out.printf("\nNémesis de %s: %s (%d derrotas en %d batallas)\n",
+                        player, rival, rivalry.winsOf(rival), rivalry.matches());
+                },
+                () -> out.printf("\n%s no tiene némesis\n", player));
+    }
+
+    // 9. Percentiles de duración y de daño por jugador y batalla (aproximados, error < 1%)
+    public void showPercentiles() {
+        showPercentiles(System.out);
+    }
+
+    public void showPercentiles(PrintStream out) {
+        out.println("\n=== PERCENTILES ===");
+        QuantileSketch durations = aggregate.getDurations();
+        if (durations.getCount() == 0) {
+            out.println("No hay batallas registradas");
+            return;
+        }
+        QuantileSketch damage = aggregate.getDamage();
+        out.printf("Duración (s): p50 %.1f | p90 %.1f | p95 %.1f | p99 %.1f\n",
+            durations.quantile(0.50) / 1000.0, durations.quantile(0.90) / 1000.0,
+            durations.quantile(0.95) / 1000.0, durations.quantile(0.99) / 1000.0);
+        out.printf("Daño:         p50 %.0f | p90 %.0f | p95 %.0f | p99 %.0f\n",
+            damage.quantile(0.50), damage.quantile(0.90), damage.quantile(0.95), damage.quantile(0.99));
+    }
+
+    // 10. Jugadores y rivalidades distintos (aproximados, error típico 1.6%)
+    public void showDistinctCounts() {
+        showDistinctCounts(System.out);
+    }
+
+    public void showDistinctCounts(PrintStream out) {
+        out.printf("\nJugadores distintos: ~%d | Rivalidades distintas: ~%d\n",
+            aggregate.getDistinctPlayers().estimate(), aggregate.getDistinctRivalries().estimate());
+    }
+
+    // 11. Actividad reciente: batallas por minuto, daño, victorias y armas dentro de la ventana
+    public void showRecentActivity(StatsWindows.Window window) {
+        showRecentActivity(System.out, window);
+    }
+
+    public void showRecentActivity(PrintStream out, StatsWindows.Window window) {
+        StatsWindows.Summary summary = windows.summarize(window);
+        out.println("\n=== ACTIVIDAD (" + window.label + ") ===");
+        out.printf("Batallas: %d (%.2f por minuto), %d rendiciones\n",
+            summary.getMatches(), summary.getMatchesPerMinute(), summary.getSurrenders());
+        if (summary.getMatches() == 0) return;
+
+        out.printf("Duración promedio: %.2f segundos\n", summary.getAverageDurationMs() / 1000.0);
+        summary.getPlayers().stream()
+            .sorted(Comparator.comparingLong(summary::damageOf).reversed())
+            .limit(3)
+            .forEach(name -> out.printf("%-15s: %d de daño, %d victorias\n",
+                name, summary.damageOf(name), summary.winsOf(name)));
+        summary.getWeaponUse().entrySet().stream()
+            .max(Map.Entry.comparingByValue())
+            .ifPresent(entry -> out.printf("Arma más usada: %s (%d veces)\n",
                 entry.getKey(), entry.getValue()));
     }
 
-    // === MÉTODOS AUXILIARES ===
+    // 12. Batallas por día, de los resúmenes y de lo retenido
+    public void showDailyActivity(int days) {
+        showDailyActivity(System.out, days);
+    }
 
-    private Map<String, Integer> getTotalDamageByPlayer() {
-        // Suma el daño como ganador y como perdedor
-        Map<String, Integer> damageMap = new HashMap<>();
-        
-        matchHistory.forEach(match -> {
-            damageMap.merge(match.getWinner(), match.getWinnerDamageDealt(), Integer::sum);
-            damageMap.merge(match.getLoser(), match.getLoserDamageDealt(), Integer::sum);
+    public void showDailyActivity(PrintStream out, int days) {
+        out.println("\n=== BATALLAS POR DÍA (últimos " + days + ") ===");
+        TreeMap<Long, long[]> totals = new TreeMap<>();
+        matchHistory.withRollups((rollups, retained) -> {
+            rollups.copyDaysTo(totals);
+            MatchRollups.addDays(totals, retained, retained.first(), retained.size());
         });
-        
-        return damageMap;
+        List<MatchRollups.Day> history = MatchRollups.toDays(totals);
+        if (history.isEmpty()) {
+            out.println("No hay batallas registradas");
+            return;
+        }
+        history.subList(history.size() - Math.max(0, Math.min(days, history.size())), history.size())
+            .forEach(day -> out.printf("%s: %d batallas, %d rendiciones, %.1fs promedio, %d de daño\n",
+                day.date(), day.matches(), day.surrenders(),
+                day.getAverageDurationMs() / 1000.0, day.damage()));
     }
 
-    private Map<String, Double> getAverageDamageByPlayer() {
-        // Calcula el promedio de daño por jugador (como ganador y perdedor)
-        Map<String, List<Integer>> damageByPlayer = new HashMap<>();
-        
-        matchHistory.forEach(match -> {
-            damageByPlayer.computeIfAbsent(match.getWinner(), k -> new ArrayList<>())
-                .add(match.getWinnerDamageDealt());
-            damageByPlayer.computeIfAbsent(match.getLoser(), k -> new ArrayList<>())
-                .add(match.getLoserDamageDealt());
-        });
-        
-        return damageByPlayer.entrySet().stream()
-            .collect(Collectors.toMap(
-                Map.Entry::getKey,
-                entry -> entry.getValue().stream()
-                    .mapToInt(Integer::intValue)
-                    .average()
-                    .orElse(0.0)
-            ));
+    // === MÉTODOS AUXILIARES ===
+
+    // Batallas registradas desde siempre, retenidas o no
+    long getMatchCount() {
+        return aggregate.getMatches();
+    }
+
+    // Batallas que ya solo están en los resúmenes
+    long getEvictedCount() {
+        return matchHistory.evictedCount();
     }
 
-    private String createRivalryKey(String player1, String player2) {
-        // Crea clave ordenada para identificar rivalidad independiente del orden
-        return player1.compareTo(player2) < 0 
-            ? player1 + " vs " + player2 
-            : player2 + " vs " + player1;
+    // Las mismas filas leídas columna a columna, sin crear objetos
+    MatchStore.View columns() {
+        return matchHistory.snapshot();
     }
 
     // Reporte completo
     public void generateFullReport() {
-        System.out.println("\n" + "=".repeat(60));
-        System.out.println("REPORTE COMPLETO DE ESTADÍSTICAS DEL SERVIDOR");
-        System.out.println("=".repeat(60));
-        System.out.println("Total de batallas: " + matchHistory.size());
+        generateFullReport(System.out);
+    }
+
+    public void generateFullReport(PrintStream out) {
+        out.println("\n" + "=".repeat(60));
+        out.println("REPORTE COMPLETO DE ESTADÍSTICAS DEL SERVIDOR");
+        out.println("=".repeat(60));
+        out.println("Total de batallas: " + aggregate.getMatches());
         
-        showTopPlayersByDamage(3);
-        showVictoriesCount();
-        showAverageDuration();
-        showPlayersAboveAverageDamage(100);
-        showMostEffectiveWeapon();
-        showSurrenderRate();
-        showDurationExtremes();
-        showRivalries();
+        showTopPlayersByDamage(out, 3);
+        showVictoriesCount(out);
+        showAverageDuration(out);
+        showPlayersAboveAverageDamage(out, 100);
+        showMostEffectiveWeapon(out);
+        showSurrenderRate(out);
+        showDurationExtremes(out);
+        showRivalries(out);
+        showPercentiles(out);
+        showDistinctCounts(out);
+        showRecentActivity(out, StatsWindows.Window.LAST_HOUR);
         
-        System.out.println("\n" + "=".repeat(60));
+        out.println("\n" + "=".repeat(60));
     }
 
 }
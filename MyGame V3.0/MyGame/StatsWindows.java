@@ -0,0 +1,164 @@
+// StatsWindows.java - Estadísticas de los últimos minutos, hora y día sobre un anillo de cubetas por minuto
+import java.time.*;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+final class StatsWindows {
+    private static final long MINUTE_MS = 60_000L;
+    // Un día de cubetas: la ventana más larga que se consulta
+    private static final int BUCKETS = 24 * 60;
+
+    enum Window {
+        LAST_5_MINUTES(5, "últimos 5 minutos"),
+        LAST_HOUR(60, "última hora"),
+        LAST_DAY(BUCKETS, "último día");
+
+        final int minutes;
+        final String label;
+
+        Window(int minutes, String label) {
+            this.minutes = minutes;
+            this.label = label;
+        }
+    }
+
+    // Totales parciales de un minuto; se vacía al reutilizarse para un minuto nuevo
+    private static final class Bucket {
+        long minute = -1;
+        long matches;
+        long surrenders;
+        long durationSum;
+        final Map<String, long[]> players = new HashMap<>();   // {daño, victorias}
+        final Map<String, Long> weaponUse = new HashMap<>();
+
+        void reset(long minute) {
+            this.minute = minute;
+            matches = 0;
+            surrenders = 0;
+            durationSum = 0;
+            players.clear();
+            weaponUse.clear();
+        }
+    }
+
+    // Resumen de una ventana, ya combinado a partir de sus cubetas
+    static final class Summary {
+        private final Window window;
+        private long matches;
+        private long surrenders;
+        private long durationSum;
+        private final Map<String, long[]> players = new HashMap<>();
+        private final Map<String, Long> weaponUse = new HashMap<>();
+
+        private Summary(Window window) {
+            this.window = window;
+        }
+
+        Window getWindow() { return window; }
+        long getMatches() { return matches; }
+        long getSurrenders() { return surrenders; }
+
+        double getMatchesPerMinute() {
+            return (double) matches / window.minutes;
+        }
+
+        double getAverageDurationMs() {
+            return matches > 0 ? (double) durationSum / matches : 0.0;
+        }
+
+        long damageOf(String player) {
+            long[] totals = players.get(player);
+            return totals == null ? 0 : totals[0];
+        }
+
+        long winsOf(String player) {
+            long[] totals = players.get(player);
+            return totals == null ? 0 : totals[1];
+        }
+
+        Set<String> getPlayers() { return Collections.unmodifiableSet(players.keySet()); }
+        Map<String, Long> getWeaponUse() { return Collections.unmodifiableMap(weaponUse); }
+    }
+
+    private final Bucket[] ring = new Bucket[BUCKETS];
+    private final LongSupplier clock;
+
+    StatsWindows() {
+        this(System::currentTimeMillis);
+    }
+
+    StatsWindows(LongSupplier clock) {
+        this.clock = clock;
+        for (int i = 0; i < BUCKETS; i++) {
+            ring[i] = new Bucket();
+        }
+    }
+
+    void add(MatchResult result) {
+        long millis = result.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        add(millis, result.getWinner(), result.getLoser(),
+            result.getWinnerDamageDealt(), result.getLoserDamageDealt(), result.getDurationMs(),
+            result.getWinnerWeapon(), result.getLoserWeapon(), result.wasSurrender());
+    }
+
+    // Solo las filas del último día llegan a alguna cubeta
+    void addRows(MatchStore.View columns, int from, int to) {
+        long oldest = clock.getAsLong() - BUCKETS * MINUTE_MS;
+        for (int row = from; row < to; row++) {
+            long millis = columns.timestampMillis(row);
+            if (millis <= oldest) continue;
+            add(millis, columns.name(columns.winnerId(row)), columns.name(columns.loserId(row)),
+                columns.winnerDamage(row), columns.loserDamage(row), columns.durationMs(row),
+                columns.name(columns.winnerWeaponId(row)), columns.name(columns.loserWeaponId(row)),
+                columns.surrender(row));
+        }
+    }
+
+    private void add(long millis, String winner, String loser, int winnerDamage, int loserDamage,
+                     long durationMs, String winnerWeapon, String loserWeapon, boolean surrender) {
+        long minute = Math.floorDiv(millis, MINUTE_MS);
+        Bucket bucket = ring[(int) Math.floorMod(minute, (long) BUCKETS)];
+        synchronized (bucket) {
+            // Una cubeta de un minuto posterior ya expulsó a este: el resultado cae fuera de toda ventana
+            if (bucket.minute > minute) return;
+            if (bucket.minute < minute) {
+                bucket.reset(minute);
+            }
+            bucket.matches++;
+            if (surrender) {
+                bucket.surrenders++;
+            }
+            bucket.durationSum += durationMs;
+
+            long[] winnerTotals = bucket.players.computeIfAbsent(winner, k -> new long[2]);
+            winnerTotals[0] += winnerDamage;
+            winnerTotals[1]++;
+            bucket.players.computeIfAbsent(loser, k -> new long[2])[0] += loserDamage;
+
+            bucket.weaponUse.merge(winnerWeapon, 1L, Long::sum);
+            bucket.weaponUse.merge(loserWeapon, 1L, Long::sum);
+        }
+    }
+
+    // Recorre solo las cubetas de la ventana; las de minutos vencidos se ignoran sin limpiarlas
+    Summary summarize(Window window) {
+        Summary summary = new Summary(window);
+        long now = Math.floorDiv(clock.getAsLong(), MINUTE_MS);
+        for (long minute = now - window.minutes + 1; minute <= now; minute++) {
+            Bucket bucket = ring[(int) Math.floorMod(minute, (long) BUCKETS)];
+            synchronized (bucket) {
+                if (bucket.minute != minute) continue;
+                summary.matches += bucket.matches;
+                summary.surrenders += bucket.surrenders;
+                summary.durationSum += bucket.durationSum;
+                bucket.players.forEach((name, totals) -> {
+                    long[] merged = summary.players.computeIfAbsent(name, k -> new long[2]);
+                    merged[0] += totals[0];
+                    merged[1] += totals[1];
+                });
+                bucket.weaponUse.forEach((weapon, uses) -> summary.weaponUse.merge(weapon, uses, Long::sum));
+            }
+        }
+        return summary;
+    }
+}
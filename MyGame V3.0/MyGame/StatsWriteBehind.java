@@ -0,0 +1,100 @@
+// StatsWriteBehind.java - Deltas de estadísticas globales acumulados por franjas y aplicados en lotes
+import java.util.*;
+import java.util.function.Function;
+
+// Las sesiones publican deltas en una franja elegida por el nombre del jugador; un hilo
+// los combina cada -Darena.statsFlushMs y aplica un solo delta por jugador a PlayerStats,
+// al leaderboard y al registro persistente. Veinte kills seguidas cuestan una sola
+// reordenación del ranking y un solo registro en disco
+final class StatsWriteBehind implements AutoCloseable {
+    private static final long FLUSH_MS = Long.getLong("arena.statsFlushMs", 200L);
+    // Potencia de dos cercana a cuatro franjas por procesador
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4);
+
+    private static final class Stripe {
+        Map<String, int[]> pending = new HashMap<>();
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Function<String, PlayerStats> target;
+    private final Thread flusher;
+    private volatile PlayerStatsStore store;
+    private volatile boolean closed = false;
+
+    StatsWriteBehind(Function<String, PlayerStats> target) {
+        this.target = target;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        flusher = new Thread(this::flushLoop, "stats-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Desde aquí los deltas combinados también van al registro persistente
+    void persistTo(PlayerStatsStore store) {
+        this.store = store;
+    }
+
+    boolean isPersistent() {
+        return store != null;
+    }
+
+    // Solo toma el candado de una franja para sumar tres enteros
+    void publish(String name, int kills, int deaths, int damage) {
+        Stripe stripe = stripes[(name.hashCode() * 0x9E3779B9 >>> 16) & (STRIPES - 1)];
+        synchronized (stripe) {
+            int[] delta = stripe.pending.computeIfAbsent(name, k -> new int[3]);
+            delta[0] += kills;
+            delta[1] += deaths;
+            delta[2] += damage;
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            try {
+                Thread.sleep(FLUSH_MS);
+            } catch (InterruptedException e) {
+                // close() despierta al hilo para el último vaciado
+            }
+            flush();
+        }
+    }
+
+    // Cada franja se intercambia por un mapa vacío; lo combinado se aplica fuera del candado
+    synchronized void flush() {
+        for (Stripe stripe : stripes) {
+            Map<String, int[]> drained;
+            synchronized (stripe) {
+                if (stripe.pending.isEmpty()) continue;
+                drained = stripe.pending;
+                stripe.pending = new HashMap<>();
+            }
+            PlayerStatsStore durable = store;
+            drained.forEach((name, delta) -> {
+                target.apply(name).addStats(delta[0], delta[1], delta[2]);
+                if (durable != null) {
+                    durable.record(name, delta[0], delta[1], delta[2]);
+                }
+            });
+        }
+    }
+
+    // Vacía lo pendiente y luego cierra el registro persistente, en ese orden
+    @Override
+    public void close() {
+        closed = true;
+        flusher.interrupt();
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        PlayerStatsStore durable = store;
+        if (durable != null) {
+            durable.close();
+        }
+    }
+}
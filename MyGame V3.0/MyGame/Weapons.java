@@ -1,7 +1,17 @@
 // Weapons.java - COMPLETAMENTE FUNCIONAL
+import java.util.List;
 import java.util.Objects;
 
 public final class Weapons {
+    // Armas que ofrece el servidor, en el orden del menú
+    static final List<Weapons> SERVER_ARSENAL = List.of(
+        new Weapons("una yuca", 20),
+        new Weapons("el poder de la amistad", 15),
+        new Weapons("machete oxidado", 25),
+        new Weapons("$800 de cebollin", 18),
+        new Weapons("hueso de pollo", 22)
+    );
+
     private final String name;
     private final int damage;
 
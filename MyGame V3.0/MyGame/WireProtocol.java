@@ -0,0 +1,203 @@
+// WireProtocol.java - Codificación de la salida del servidor: texto (por defecto) o binaria
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Binario: cada mensaje es [código][longitud varint][carga]. La carga lleva los enteros
+// del mensaje como varints y después, si lo tiene, el texto (longitud varint + UTF-8).
+// El cliente lo pide enviando PROTOCOL:BINARY antes de su nombre; la entrada sigue en texto
+enum WireProtocol {
+    TEXT {
+        @Override
+        void encode(Buffer out, BitSet definedTemplates, ServerMessage message, int a, int b, int c, String s) {
+            out.writeLine(message.render(a, b, c, s));
+        }
+    },
+    BINARY {
+        @Override
+        void encode(Buffer out, BitSet definedTemplates, ServerMessage message, int a, int b, int c, String s) {
+            // La primera vez que una conexión ve un menú recibe su texto; después, solo el id
+            if (message == ServerMessage.MENU && !definedTemplates.get(a)) {
+                definedTemplates.set(a);
+                writeFrame(out, ServerMessage.MENU_DEFINE, a, 0, 0, ServerMessage.template(a));
+            }
+            writeFrame(out, message, a, b, c, s);
+        }
+    };
+
+    static final String BINARY_REQUEST = "PROTOCOL:BINARY";
+    static final String BINARY_ACK = "PROTOCOL_OK:BINARY";
+
+    abstract void encode(Buffer out, BitSet definedTemplates, ServerMessage message, int a, int b, int c, String s);
+
+    private static void writeFrame(Buffer out, ServerMessage message, int a, int b, int c, String s) {
+        byte[] text = message.hasText ? s.getBytes(StandardCharsets.UTF_8) : null;
+        int[] values = { a, b, c };
+
+        int length = text != null ? varintSize(text.length) + text.length : 0;
+        for (int i = 0; i < message.ints; i++) {
+            length += varintSize(values[i]);
+        }
+
+        out.writeByte(message.code);
+        out.writeVarint(length);
+        for (int i = 0; i < message.ints; i++) {
+            out.writeVarint(values[i]);
+        }
+        if (text != null) {
+            out.writeVarint(text.length);
+            out.writeBytes(text);
+        }
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    // === LECTURA (CLIENTE) ===
+
+    // Lee un mensaje binario y devuelve su forma de texto, o null al cerrarse la conexión.
+    // Las definiciones de menú se guardan en templates y no producen salida
+    static String readFrame(DataInputStream in, Map<Integer, String> templates) throws IOException {
+        while (true) {
+            int code = in.read();
+            if (code < 0) return null;
+
+            byte[] payload = new byte[readVarint(in)];
+            in.readFully(payload);
+            Optional<ServerMessage> known = ServerMessage.byCode(code);
+            if (known.isEmpty()) continue; // Código de una versión más nueva: se salta
+
+            ServerMessage message = known.get();
+            DataInputStream fields = new DataInputStream(new ByteArrayInputStream(payload));
+            int[] values = new int[3];
+            for (int i = 0; i < message.ints; i++) {
+                values[i] = readVarint(fields);
+            }
+            String text = null;
+            if (message.hasText) {
+                byte[] bytes = new byte[readVarint(fields)];
+                fields.readFully(bytes);
+                text = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            switch (message) {
+                case MENU_DEFINE -> templates.put(values[0], text);
+                case MENU -> {
+                    return ServerMessage.fillTemplate(templates.getOrDefault(values[0], ""), values[1], values[2]);
+                }
+                default -> {
+                    return message.render(values[0], values[1], values[2], text);
+                }
+            }
+        }
+    }
+
+    // Línea de texto leída byte a byte, para poder cambiar a binario sin perder datos en un buffer
+    static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                return line.size() > 0 ? line.toString(StandardCharsets.UTF_8) : null;
+            }
+            line.write(b);
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Varint demasiado largo");
+    }
+
+    // Mensaje difundido: se codifica una sola vez por protocolo y se comparte el arreglo
+    static final class Shared {
+        private final ServerMessage message;
+        private final int a;
+        private final String s;
+        private final byte[][] frames = new byte[WireProtocol.values().length][];
+
+        Shared(ServerMessage message, int a, String s) {
+            if (message == ServerMessage.MENU) {
+                throw new IllegalArgumentException("Los menús dependen de la conexión");
+            }
+            this.message = message;
+            this.a = a;
+            this.s = s;
+        }
+
+        synchronized byte[] frame(WireProtocol protocol) {
+            byte[] frame = frames[protocol.ordinal()];
+            if (frame == null) {
+                Buffer buffer = new Buffer(32);
+                protocol.encode(buffer, null, message, a, 0, 0, s);
+                frame = frames[protocol.ordinal()] = buffer.toByteArray();
+            }
+            return frame;
+        }
+    }
+
+    // Arreglo de bytes que crece: acumula la salida de un comando antes de cerrarla en un bloque
+    static final class Buffer {
+        private byte[] bytes;
+        private int size = 0;
+
+        Buffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void writeBytes(byte[] data) {
+            ensure(data.length);
+            System.arraycopy(data, 0, bytes, size, data.length);
+            size += data.length;
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeLine(String line) {
+            writeBytes(line.getBytes(StandardCharsets.UTF_8));
+            writeByte('\n');
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}